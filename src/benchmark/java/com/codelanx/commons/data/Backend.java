@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.data;
+
+import com.codelanx.commons.data.types.SQLite;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The embedded databases the data layer benchmarks run against
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+public enum Backend {
+
+    /** A temporary on-disk SQLite database */
+    SQLITE {
+        @Override
+        public SQLDataType open() throws SQLException {
+            File db;
+            try {
+                db = File.createTempFile("bench", ".db");
+            } catch (IOException ex) {
+                throw new SQLException("Unable to create a temporary SQLite database", ex);
+            }
+            db.deleteOnExit();
+            SQLite back = new SQLite();
+            back.open(db);
+            return back;
+        }
+    },
+    /** An in-process H2 database emulating MySQL */
+    H2 {
+        @Override
+        public SQLDataType open() throws SQLException {
+            String url = "jdbc:h2:mem:bench" + COUNTER.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+            return new H2Database(DriverManager.getConnection(url));
+        }
+    };
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    /**
+     * Opens a new, empty database for this backend
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The opened {@link SQLDataType}
+     * @throws SQLException If the database could not be opened
+     */
+    public abstract SQLDataType open() throws SQLException;
+
+    /**
+     * Creates the {@code bench} table used by all benchmarks and fills it with
+     * {@code rows} rows
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param db The database to set up
+     * @param rows The number of rows to insert
+     */
+    public static void populate(SQLDataType db, int rows) {
+        db.update("DROP TABLE IF EXISTS bench");
+        db.update("CREATE TABLE bench (id INTEGER PRIMARY KEY, name VARCHAR(64), score BIGINT, ratio DOUBLE, active BOOLEAN)");
+        db.batchUpdate("INSERT INTO bench (id, name, score, ratio, active) VALUES (?, ?, ?, ?, ?)", 1000,
+                Backend.ids(rows), i -> i, i -> "row-" + i, i -> i * 31L, i -> i / 7D, i -> (i & 1) == 0);
+    }
+
+    static List<Integer> ids(int rows) {
+        List<Integer> back = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            back.add(i);
+        }
+        return back;
+    }
+
+    private static final class H2Database implements SQLDataType {
+
+        private final Connection con;
+        private boolean errors = true;
+
+        private H2Database(Connection con) {
+            this.con = con;
+        }
+
+        @Override
+        public boolean checkTable(String tableName) {
+            return 1 == this.query(rs -> rs.next() ? rs.getByte(1) : 0,
+                    "SELECT COUNT(*) FROM information_schema.TABLES WHERE UPPER(TABLE_NAME) = UPPER(?)", tableName).getResponse();
+        }
+
+        @Override
+        public boolean checkColumn(String tableName, String columnName) {
+            return 1 == this.query(rs -> rs.next() ? rs.getByte(1) : 0,
+                    "SELECT COUNT(*) FROM information_schema.COLUMNS WHERE UPPER(TABLE_NAME) = UPPER(?) AND UPPER(COLUMN_NAME) = UPPER(?)",
+                    tableName, columnName).getResponse();
+        }
+
+        @Override
+        public Connection getConnection() {
+            return this.con;
+        }
+
+        @Override
+        public void setErrorOutput(boolean errors) {
+            this.errors = errors;
+        }
+
+        @Override
+        public boolean isSendingErrorOutput() {
+            return this.errors;
+        }
+
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link SQLDataType#batchUpdate} throughput for a range of batch
+ * sizes. Every invocation inserts {@code rows} fresh rows into an empty table
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchUpdateBenchmark {
+
+    @Param({"SQLITE", "H2"})
+    public Backend backend;
+
+    @Param({"1", "10", "100", "1000"})
+    public int batchSize;
+
+    @Param("1000")
+    public int rows;
+
+    private SQLDataType db;
+    private List<Integer> ids;
+
+    @Setup
+    public void setup() throws SQLException {
+        this.db = this.backend.open();
+        Backend.populate(this.db, 0);
+        this.ids = Backend.ids(this.rows);
+    }
+
+    //each invocation inserts whole batches, which outweighs the per-invocation setup cost
+    @Setup(Level.Invocation)
+    public void clear() {
+        this.db.update("DELETE FROM bench");
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.db.close();
+    }
+
+    @Benchmark
+    public int batchUpdate() {
+        return this.db.batchUpdate("INSERT INTO bench (id, name, score, ratio, active) VALUES (?, ?, ?, ?, ?)", this.batchSize,
+                this.ids, i -> i, i -> "row-" + i, i -> i * 31L, i -> i / 7D, i -> (i & 1) == 0);
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures single-row lookups and updates through {@link SQLDataType}
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+
+    private static final String BY_ID = "SELECT id, name, score, ratio, active FROM bench WHERE id = ?";
+
+    @Param({"SQLITE", "H2"})
+    public Backend backend;
+
+    @Param("10000")
+    public int rows;
+
+    private SQLDataType db;
+
+    @Setup
+    public void setup() throws SQLException {
+        this.db = this.backend.open();
+        Backend.populate(this.db, this.rows);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.db.close();
+    }
+
+    @Benchmark
+    public String query() {
+        return this.db.query(rs -> rs.next() ? rs.getString(2) : null, BY_ID, this.randomId()).getResponse();
+    }
+
+    @Benchmark
+    public String select() {
+        return this.db.select(row -> row.getString(2), BY_ID, this.randomId()).getResponse();
+    }
+
+    @Benchmark
+    public Long selectFirst() {
+        return this.db.selectFirst(ResultRow::getLong, "SELECT score FROM bench WHERE id = ?", this.randomId()).getResponse();
+    }
+
+    @Benchmark
+    public int update() {
+        return this.db.update("UPDATE bench SET score = score + 1 WHERE id = ?", this.randomId()).getUpdatedRows();
+    }
+
+    private int randomId() {
+        return ThreadLocalRandom.current().nextInt(this.rows);
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of decoding every row of a result through {@link ResultRow},
+ * against reading the underlying {@link ResultSet} directly
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultRowBenchmark {
+
+    private static final String ALL = "SELECT id, name, score, ratio, active FROM bench";
+
+    @Param({"SQLITE", "H2"})
+    public Backend backend;
+
+    @Param({"100", "1000"})
+    public int rows;
+
+    private SQLDataType db;
+
+    @Setup
+    public void setup() throws SQLException {
+        this.db = this.backend.open();
+        Backend.populate(this.db, this.rows);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.db.close();
+    }
+
+    @Benchmark
+    public void resultSet(Blackhole hole) {
+        this.db.query(rs -> {
+            while (rs.next()) {
+                ResultRowBenchmark.consume(rs, hole);
+            }
+        }, ALL);
+    }
+
+    @Benchmark
+    public void resultRow(Blackhole hole) {
+        this.db.query(rs -> {
+            while (rs.next()) {
+                ResultRowBenchmark.consume(new ResultRow(rs), hole);
+            }
+        }, ALL);
+    }
+
+    @Benchmark
+    public void resultRowByLabel(Blackhole hole) {
+        this.db.query(rs -> {
+            while (rs.next()) {
+                ResultRow row = new ResultRow(rs);
+                hole.consume(row.getInt("id"));
+                hole.consume(row.getString("name"));
+                hole.consume(row.getLong("score"));
+                hole.consume(row.getDouble("ratio"));
+                hole.consume(row.getBoolean("active"));
+            }
+        }, ALL);
+    }
+
+    private static void consume(ResultSet row, Blackhole hole) throws SQLException {
+        hole.consume(row.getInt(1));
+        hole.consume(row.getString(2));
+        hole.consume(row.getLong(3));
+        hole.consume(row.getDouble(4));
+        hole.consume(row.getBoolean(5));
+    }
+
+}
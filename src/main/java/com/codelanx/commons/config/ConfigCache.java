@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.config;
+
+import com.codelanx.commons.data.FileDataType;
+import com.google.common.collect.MapMaker;
+
+import java.util.Map;
+
+/**
+ * Caches the converted values of {@link ConfigFile} keys for the typed
+ * accessors such as {@link ConfigFile#asInt()}, and the compiled
+ * {@link MessageTemplate} of {@link LangFile} keys. A cached value is stamped
+ * with the {@link FileDataType} and the root it was read from, and as every
+ * change to a {@link FileDataType} publishes a new root, any change (or
+ * reload) invalidates it
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+final class ConfigCache {
+
+    static final int INT = 0;
+    static final int LONG = 1;
+    static final int DOUBLE = 2;
+    static final int FLOAT = 3;
+    static final int BOOLEAN = 4;
+    static final int STRING = 5;
+    private static final int TEMPLATE = 6;
+    private static final int SLOTS = 7;
+    private static final Object NULL = new Object();
+    private static final Map<InfoFile, Stamped> VALUES = new MapMaker().weakKeys().makeMap();
+
+    private ConfigCache() {
+    }
+
+    /**
+     * Returns the value of a {@link ConfigFile} as converted by
+     * {@link ConfigFile#as(Class)}, converting it only if it was changed
+     * since it was last converted to that type. Keys which are not backed by
+     * a {@link FileDataType}, such as a {@link MemoryConfig}, are converted on
+     * every call
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param <T> The type to convert to
+     * @param key The {@link ConfigFile} to read
+     * @param slot The slot of the type to convert to, such as {@link #INT}
+     * @param type The class of the type to convert to
+     * @return The converted value
+     */
+    static <T> T get(ConfigFile key, int slot, Class<T> type) {
+        Stamped current = VALUES.get(key);
+        if (current == null && !ConfigCache.isBacked(key)) {
+            return key.as(type); //no root to stamp the value with
+        }
+        Stamped stamped = ConfigCache.stamped(key, key.getConfig(), current, false);
+        Object back = stamped.values[slot];
+        if (back == null) {
+            //converting after reading the root may see a newer value, which is then just converted again
+            back = key.as(type);
+            stamped.values[slot] = back == null ? NULL : back;
+        }
+        return back == NULL ? null : (T) back;
+    }
+
+    /**
+     * Returns the compiled template of a {@link LangFile}, compiling it only
+     * if it was changed since it was last compiled
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param key The {@link LangFile} to compile
+     * @return The compiled {@link MessageTemplate}
+     */
+    static MessageTemplate template(LangFile key) {
+        Stamped current = VALUES.get(key);
+        //anonymous values are not read from a file, see LangFile#get
+        boolean anonymous = current == null ? key.getClass().isAnonymousClass() : current.anonymous;
+        Stamped stamped = ConfigCache.stamped(key, anonymous ? null : key.getConfig(), current, anonymous);
+        Object back = stamped.values[TEMPLATE];
+        if (back == null) {
+            back = MessageTemplate.compile(key.get());
+            stamped.values[TEMPLATE] = back;
+        }
+        return (MessageTemplate) back;
+    }
+
+    //whether the key reads from a FileDataType, rather than from memory
+    private static boolean isBacked(InfoFile key) {
+        if (key instanceof MemoryConfig) {
+            return false;
+        }
+        try {
+            return key.getData() != null;
+        } catch (UnsupportedOperationException ex) {
+            return true; //anonymous keys wrap a FileDataType, see ConfigFile#anonMutator
+        }
+    }
+
+    private static Stamped stamped(InfoFile key, FileDataType data, Stamped stamped, boolean anonymous) {
+        //data is also null while it is preloaded with defaults, see DataHolder#get
+        Object root = data == null ? null : data.getRoot();
+        if (stamped == null || stamped.data != data || stamped.root != root) {
+            Stamped back = new Stamped(data, root, anonymous);
+            VALUES.put(key, back);
+            return back;
+        }
+        return stamped;
+    }
+
+    private static final class Stamped {
+
+        private final FileDataType data;
+        private final Object root;
+        private final boolean anonymous;
+        private final Object[] values = new Object[SLOTS]; //immutable values, so racy publication is safe
+
+        private Stamped(FileDataType data, Object root, boolean anonymous) {
+            this.data = data;
+            this.root = root;
+            this.anonymous = anonymous;
+        }
+
+    }
+
+}
@@ -19,23 +19,14 @@
  */
 package com.codelanx.commons.config;
 
+import com.codelanx.commons.data.CodecRegistry;
 import com.codelanx.commons.data.FileDataType;
 import com.codelanx.commons.data.FileSerializable;
 import com.codelanx.commons.util.Reflections;
 import com.google.common.primitives.Primitives;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.lang3.Validate;
 
@@ -85,16 +76,13 @@ public interface ConfigFile extends InfoFile {
             return null;
         }
         if (o instanceof Map && FileSerializable.class.isAssignableFrom(c)) {
-            try {
-                //TODO: no raw reflection here
-                Constructor<T> obj = c.getDeclaredConstructor(Map.class);
-                obj.setAccessible(true);
-                return obj.newInstance(o);
-            } catch (NoSuchMethodException
-                    | InstantiationException
-                    | IllegalAccessException
-                    | InvocationTargetException e) {
-                e.printStackTrace();
+            CodecRegistry.Codec<T> codec = CodecRegistry.get(c);
+            if (codec != null) {
+                try {
+                    return codec.deserialize((Map<String, Object>) o);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
             }
         }
         if (c == String.class) {
@@ -130,58 +118,12 @@ public interface ConfigFile extends InfoFile {
      *         booleans. If the passed class parameter is for {@link String},
      *         then {@link Object#toString()} is called on the value instead
      */
-    @SuppressWarnings("rawtypes")
-    //TODO: FileSerializable null edge cases
     default public <G, T extends Collection<G>> T as(Class<T> collection, Class<G> type) {
         Collection<?> col = this.as(collection);
         if (FileSerializable.class.isAssignableFrom(type)) {
-            //do a conversion
-            Object nonMatch = col.stream().filter(o -> !(o instanceof Map) && !type.isAssignableFrom(o.getClass())).findAny().orElse(null);
-            if (nonMatch != null) {
-                throw new IllegalArgumentException("Cannot deserialize non-map object: " + nonMatch);
-            }
-            try {
-                //TODO: no raw reflection here
-                T back;
-                if (List.class.equals(collection)) {
-                    back = (T) new ArrayList<G>();
-                } else if (Set.class.equals(collection)) {
-                    back = (T) new HashSet<G>();
-                } else {
-                    back = collection.newInstance();
-                }
-                Constructor<G> obj = type.getDeclaredConstructor(Map.class);
-                obj.setAccessible(true);
-                AtomicBoolean broken = new AtomicBoolean();
-                col.stream().filter(o -> broken.compareAndSet(false, o != null && !(o instanceof Map) && !type.isAssignableFrom(o.getClass()))).forEach(o -> {
-                    if (broken.get()) {
-                        return;
-                    }
-                    if (o == null) {
-                        back.add(null);
-                        return;
-                    }
-                    if (type.isAssignableFrom(o.getClass())) {
-                        back.add((G) o);
-                        return;
-                    }
-                    try {
-                        G val = obj.newInstance(o);
-                        back.add(val);
-                    } catch (InstantiationException
-                            | IllegalAccessException
-                            | InvocationTargetException e) {
-                        e.printStackTrace();
-                    }
-                });
-                if (back.size() != col.size()) { //TODO: Maybe not calculate to end? soft-fuse atm on that boolean
-                    throw new IllegalStateException("Mismatched serialization of collection");
-                }
-                return back;
-            } catch (NoSuchMethodException
-                    | InstantiationException
-                    | IllegalAccessException e) {
-                e.printStackTrace();
+            Conversions.CollectionConversion<G, T> conversion = Conversions.collection(collection, type);
+            if (conversion != null) {
+                return conversion.convert(col);
             }
         }
         for (Object o : col) {
@@ -215,62 +157,12 @@ public interface ConfigFile extends InfoFile {
      *         booleans. If the passed class parameter is for {@link String},
      *         then {@link Object#toString()} is called on the value instead
      */
-    @SuppressWarnings("rawtypes")
     default public <K, V, M extends Map<K, V>> M as(Class<M> map, Class<K> key, Class<V> value) {
         Map<?, ?> m = this.as(map);
         if (FileSerializable.class.isAssignableFrom(value)) {
-            //precheck
-            Object nonKey = m.keySet().stream().filter(k -> k != null && !key.isAssignableFrom(k.getClass())).findAny().orElse(null);
-            if (nonKey != null) {
-                throw new IllegalArgumentException("Mismatched key type. Expected: " + key.getName() + ", found: " + nonKey.getClass().getName());
-            }
-            Object nonMatch = m.entrySet().stream()
-                    .filter(o -> o.getValue() != null && !(o.getValue() instanceof Map) && !value.isAssignableFrom(o.getValue().getClass()))
-                    .findAny().map(Entry::getValue).orElse(null);
-            if (nonMatch != null) {
-                throw new IllegalArgumentException("Cannot deserialize non-map object: " + nonMatch);
-            }
-            //do a conversion
-            try {
-                //TODO: no raw reflection here
-                if (Map.class.equals(map)) {
-                    map = (Class<M>) (Class<?>) LinkedHashMap.class;
-                }
-                M back = map.newInstance();
-                Constructor<V> obj = value.getDeclaredConstructor(Map.class);
-                obj.setAccessible(true);
-                AtomicBoolean broken = new AtomicBoolean();
-                m.entrySet().stream()
-                        .filter(ent -> broken.compareAndSet(false, ent.getValue() != null && !(ent.getValue() instanceof Map) && !value.isAssignableFrom(ent.getValue().getClass())))
-                        .map(ent -> {
-                            if (broken.get()) {
-                                return null;
-                            }
-                            if (ent.getValue() == null || value.isAssignableFrom(ent.getValue().getClass())) {
-                                back.put((K) ent.getKey(), (V) ent.getValue());
-                                return ent.getValue();
-                            }
-                            Map<?, ?> o = (Map<?, ?>) ent.getValue();
-                            try {
-                                V vo = obj.newInstance(o);
-                                back.put((K) ent.getKey(), vo);
-                                return vo;
-                            } catch (InstantiationException
-                                    | IllegalAccessException
-                                    | InvocationTargetException e) {
-                                e.printStackTrace();
-                            }
-                            return null;
-                        })
-                        .filter(o -> broken.compareAndSet(false, o == null)).count();
-                if (back.size() != m.size()) { //TODO: Maybe not calculate to end? soft-fuse atm on that boolean
-                    throw new IllegalStateException("Mismatched serialization of collection");
-                }
-                return back;
-            } catch (NoSuchMethodException
-                    | InstantiationException
-                    | IllegalAccessException e) {
-                e.printStackTrace();
+            Conversions.MapConversion<V, M> conversion = Conversions.map(map, value);
+            if (conversion != null) {
+                return conversion.convert(m, key);
             }
         }
         for (Map.Entry<?, ?> ent : m.entrySet()) {
@@ -290,16 +182,105 @@ public interface ConfigFile extends InfoFile {
     }
 
     /**
-     * Sets a value in the {@link FileDataType}
+     * Returns the value as an {@code int}, as converted by {@link #as(Class)}. The
+     * converted value is cached until the underlying {@link FileDataType}
+     * is changed or reloaded
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The value as an {@code int}
+     */
+    default public int asInt() {
+        return ConfigCache.get(this, ConfigCache.INT, int.class);
+    }
+
+    /**
+     * Returns the value as a {@code long}, as converted by {@link #as(Class)}. The
+     * converted value is cached until the underlying {@link FileDataType}
+     * is changed or reloaded
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The value as a {@code long}
+     */
+    default public long asLong() {
+        return ConfigCache.get(this, ConfigCache.LONG, long.class);
+    }
+
+    /**
+     * Returns the value as a {@code double}, as converted by {@link #as(Class)}. The
+     * converted value is cached until the underlying {@link FileDataType}
+     * is changed or reloaded
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The value as a {@code double}
+     */
+    default public double asDouble() {
+        return ConfigCache.get(this, ConfigCache.DOUBLE, double.class);
+    }
+
+    /**
+     * Returns the value as a {@code float}, as converted by {@link #as(Class)}. The
+     * converted value is cached until the underlying {@link FileDataType}
+     * is changed or reloaded
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The value as a {@code float}
+     */
+    default public float asFloat() {
+        return ConfigCache.get(this, ConfigCache.FLOAT, float.class);
+    }
+
+    /**
+     * Returns the value as a {@code boolean}, as converted by {@link #as(Class)}. The
+     * converted value is cached until the underlying {@link FileDataType}
+     * is changed or reloaded
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The value as a {@code boolean}
+     */
+    default public boolean asBoolean() {
+        return ConfigCache.get(this, ConfigCache.BOOLEAN, boolean.class);
+    }
+
+    /**
+     * Returns the value as a {@link String}, as converted by {@link #as(Class)}. The
+     * converted value is cached until the underlying {@link FileDataType}
+     * is changed or reloaded
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The value as a {@link String}
+     */
+    default public String asString() {
+        return ConfigCache.get(this, ConfigCache.STRING, String.class);
+    }
+
+    /**
+     * Sets a value in the {@link FileDataType}. If the file is still being
+     * preloaded with defaults, this waits for it to be loaded
      * 
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.3.3
      * 
      * @param val The value to set
      * @return The previous {@link ConfigFile} value
      */
     default public ConfigFile set(Object val) {
-        this.getConfig().set(this.getPath(), val);
+        FileDataType data = this.getConfig();
+        if (data == null) {
+            data = this.getData().await(this); //preloaded with defaults
+        }
+        data.set(this.getPath(), val);
         return this;
     }
 
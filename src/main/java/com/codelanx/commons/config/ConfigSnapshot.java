@@ -0,0 +1,584 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.config;
+
+import com.codelanx.commons.data.CodecRegistry;
+import com.codelanx.commons.data.FileDataType;
+import com.codelanx.commons.data.FileSerializable;
+import com.codelanx.commons.logging.Debugger;
+import com.google.common.collect.MapMaker;
+import org.apache.commons.lang3.Validate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable version of a configuration section, stored as a persistent
+ * hash trie. Every change returns a new snapshot which shares all untouched
+ * nodes with the old one, so a snapshot can be read by any number of threads
+ * without locks, and never observes a later change. Nested sections are
+ * snapshots themselves, and lists are unmodifiable. Keys are kept in no
+ * particular order
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ *
+ * @see SnapshotStore
+ */
+public final class ConfigSnapshot {
+
+    private static final ConfigSnapshot EMPTY = new ConfigSnapshot(null, 0);
+    private static final Object NOT_FOUND = new Object();
+    private static final int BITS = 5;
+    private static final int MAX_SHIFT = 30;
+    //source nodes of FileDataType trees are never changed once published, see FileDataType#getRoot
+    private static final Map<Object, Object> CONVERTED = new MapMaker().weakKeys().makeMap();
+    private final Object root; //a Bitmap or Collision node, null if empty
+    private final int size;
+
+    private ConfigSnapshot(Object root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the empty snapshot
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return An empty {@link ConfigSnapshot}
+     */
+    public static ConfigSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns a snapshot of the current values of a {@link FileDataType}.
+     * Sections which did not change since a previous snapshot of the file
+     * are shared with it instead of being converted again
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param data The {@link FileDataType} to take a snapshot of
+     * @return The {@link ConfigSnapshot} of the file
+     */
+    public static ConfigSnapshot of(FileDataType data) {
+        Validate.notNull(data, "FileDataType cannot be null");
+        Object root = data.getRoot();
+        Validate.isTrue(root instanceof Map, "Cannot take a snapshot of a series");
+        return (ConfigSnapshot) ConfigSnapshot.convert(root, true);
+    }
+
+    /**
+     * Returns a snapshot of a {@link Map}, with nested {@link Map Maps} as
+     * nested sections
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param values The values of the snapshot
+     * @return The {@link ConfigSnapshot} of the values
+     */
+    public static ConfigSnapshot of(Map<?, ?> values) {
+        Validate.notNull(values, "Values cannot be null");
+        return (ConfigSnapshot) ConfigSnapshot.convert(values, false);
+    }
+
+    /**
+     * Gets the object at the specified path
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param path The path to get, delimited by '{@code .}'
+     * @return The relevant object, or {@code null} if no value is found
+     */
+    public Object get(String path) {
+        return this.get(path, null);
+    }
+
+    /**
+     * Gets the object at the specified path, or returns the passed "default"
+     * value if nothing is found. The lookup does not allocate
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param path The path to get, delimited by '{@code .}'
+     * @param def The default value to return upon not finding a value
+     * @return The relevant object, or the default if no value is found
+     */
+    public Object get(String path, Object def) {
+        int end = ConfigSnapshot.length(path);
+        ConfigSnapshot section = this;
+        int start = 0;
+        while (true) {
+            int dot = path.indexOf('.', start);
+            int stop = dot < 0 || dot >= end ? end : dot;
+            Object back = ConfigSnapshot.find(section.root, ConfigSnapshot.hash(path, start, stop), path, start, stop);
+            if (back == NOT_FOUND) {
+                return def;
+            } else if (stop == end) {
+                return back;
+            } else if (!(back instanceof ConfigSnapshot)) {
+                return def;
+            }
+            section = (ConfigSnapshot) back;
+            start = stop + 1;
+        }
+    }
+
+    /**
+     * Gets the value of an {@link InfoFile} key from this snapshot
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param key The key to read
+     * @return The value at the path of the key, or its default value
+     */
+    public Object get(InfoFile key) {
+        return this.get(key.getPath(), key.getDefault());
+    }
+
+    /**
+     * Returns the nested section at the specified path
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param path The path of the section, delimited by '{@code .}'
+     * @return The section, or {@code null} if the path is not a section
+     */
+    public ConfigSnapshot getSection(String path) {
+        Object back = this.get(path);
+        return back instanceof ConfigSnapshot ? (ConfigSnapshot) back : null;
+    }
+
+    /**
+     * Returns whether a value is set at the specified path
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param path The path to check, delimited by '{@code .}'
+     * @return {@code true} if a value is set
+     */
+    public boolean isSet(String path) {
+        return this.get(path, NOT_FOUND) != NOT_FOUND;
+    }
+
+    /**
+     * Returns a snapshot with the value at the specified path replaced.
+     * Missing sections along the path are created, and a {@code null} value
+     * removes the path. This snapshot is not changed
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param path The path to set, delimited by '{@code .}'
+     * @param value The value to set
+     * @return The changed {@link ConfigSnapshot}, or this snapshot if nothing
+     *         was changed
+     */
+    public ConfigSnapshot set(String path, Object value) {
+        return this.set(path, 0, ConfigSnapshot.length(path), value == null ? null : ConfigSnapshot.convert(value, false));
+    }
+
+    private ConfigSnapshot set(String path, int start, int end, Object value) {
+        int dot = path.indexOf('.', start);
+        int stop = dot < 0 || dot >= end ? end : dot;
+        String key = path.substring(start, stop);
+        if (stop == end) {
+            return value == null ? this.without(key) : this.with(key, value);
+        }
+        Object old = ConfigSnapshot.find(this.root, key.hashCode(), key, 0, key.length());
+        if (!(old instanceof ConfigSnapshot)) {
+            if (value == null) {
+                return this; //nothing to remove
+            }
+            old = EMPTY;
+        }
+        ConfigSnapshot child = ((ConfigSnapshot) old).set(path, stop + 1, end, value);
+        return child == old ? this : this.with(key, child);
+    }
+
+    /**
+     * Returns the number of keys directly in this section
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The number of keys
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns whether this section has no keys
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return {@code true} if there are no keys
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Returns the keys directly in this section
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return An unmodifiable {@link Set} of the keys
+     */
+    public Set<String> getKeys() {
+        Set<String> back = new HashSet<>(this.size * 4 / 3 + 1);
+        this.forEach((k, v) -> back.add(k));
+        return Collections.unmodifiableSet(back);
+    }
+
+    /**
+     * Applies an action to every key and value directly in this section
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param action The action to apply
+     */
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        ConfigSnapshot.forEach(this.root, action);
+    }
+
+    /**
+     * Copies this snapshot into mutable {@link Map Maps}, e.g. to set it in
+     * a {@link FileDataType}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return A new {@link Map} of the values of this snapshot
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> back = new LinkedHashMap<>(this.size * 4 / 3 + 1);
+        this.forEach((k, v) -> back.put(k, ConfigSnapshot.unwrap(v)));
+        return back;
+    }
+
+    @Override
+    public String toString() {
+        return this.toMap().toString();
+    }
+
+    private ConfigSnapshot with(String key, Object value) {
+        boolean[] added = new boolean[1];
+        Object next = ConfigSnapshot.assoc(this.root, 0, key.hashCode(), key, value, added);
+        return next == this.root ? this : new ConfigSnapshot(next, added[0] ? this.size + 1 : this.size);
+    }
+
+    private ConfigSnapshot without(String key) {
+        Object next = ConfigSnapshot.dissoc(this.root, 0, key.hashCode(), key);
+        if (next == this.root) {
+            return this;
+        }
+        return next == null ? EMPTY : new ConfigSnapshot(next, this.size - 1);
+    }
+
+    private static Object unwrap(Object value) {
+        if (value instanceof ConfigSnapshot) {
+            return ((ConfigSnapshot) value).toMap();
+        } else if (value instanceof List) {
+            List<Object> back = new ArrayList<>(((List<?>) value).size());
+            ((List<?>) value).forEach(o -> back.add(ConfigSnapshot.unwrap(o)));
+            return back;
+        }
+        return value;
+    }
+
+    private static Object convert(Object value, boolean shared) {
+        if (!(value instanceof Map || value instanceof Collection)) {
+            return value;
+        }
+        Object back = shared ? CONVERTED.get(value) : null;
+        if (back != null) {
+            return back;
+        }
+        if (value instanceof Map) {
+            back = ConfigSnapshot.convertMap((Map<?, ?>) value, shared);
+        } else {
+            List<Object> list = new ArrayList<>(((Collection<?>) value).size());
+            ((Collection<?>) value).forEach(o -> list.add(ConfigSnapshot.convert(o, shared)));
+            back = Collections.unmodifiableList(list);
+        }
+        if (shared) {
+            CONVERTED.put(value, back);
+        }
+        return back;
+    }
+
+    private static Object convertMap(Map<?, ?> value, boolean shared) {
+        Object ident = value.get(FileSerializable.IDENTIFIER_KEY);
+        if (ident instanceof String) {
+            //serialized object of a lazily loaded file, see FileDataType#parseDeserializable
+            CodecRegistry.Codec<?> codec = CodecRegistry.get((String) ident);
+            if (codec != null) {
+                Map<String, Object> data = new LinkedHashMap<>();
+                value.forEach((k, v) -> data.put(String.valueOf(k), v));
+                data.remove(FileSerializable.IDENTIFIER_KEY);
+                try {
+                    return codec.deserialize(data);
+                } catch (RuntimeException e) {
+                    Debugger.error(e, "Error while instantiating '%s'", ident);
+                }
+            }
+        }
+        ConfigSnapshot back = EMPTY;
+        for (Map.Entry<?, ?> ent : value.entrySet()) {
+            if (ent.getValue() != null) {
+                back = back.with(String.valueOf(ent.getKey()), ConfigSnapshot.convert(ent.getValue(), shared));
+            }
+        }
+        return back;
+    }
+
+    private static int length(String path) {
+        int end = path.length();
+        while (end > 0 && path.charAt(end - 1) == '.') {
+            end--; //trailing empty elements are dropped, as with FileDataType
+        }
+        return end;
+    }
+
+    //equal to String#hashCode of the substring
+    private static int hash(String path, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + path.charAt(i);
+        }
+        return h;
+    }
+
+    private static boolean matches(String key, String path, int start, int end) {
+        return key.length() == end - start && key.regionMatches(0, path, start, end - start);
+    }
+
+    private static int index(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1)) << 1;
+    }
+
+    private static Object find(Object node, int hash, String path, int start, int end) {
+        int shift = 0;
+        while (node instanceof Bitmap) {
+            Bitmap b = (Bitmap) node;
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((b.bitmap & bit) == 0) {
+                return NOT_FOUND;
+            }
+            int i = ConfigSnapshot.index(b.bitmap, bit);
+            Object key = b.array[i];
+            if (key == null) {
+                node = b.array[i + 1];
+                shift += BITS;
+            } else {
+                return ConfigSnapshot.matches((String) key, path, start, end) ? b.array[i + 1] : NOT_FOUND;
+            }
+        }
+        if (node instanceof Collision) {
+            Object[] array = ((Collision) node).array;
+            for (int i = 0; i < array.length; i += 2) {
+                if (ConfigSnapshot.matches((String) array[i], path, start, end)) {
+                    return array[i + 1];
+                }
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    private static Object assoc(Object node, int shift, int hash, String key, Object value, boolean[] added) {
+        if (node == null) {
+            added[0] = true;
+            return new Bitmap(1 << ((hash >>> shift) & 31), new Object[]{key, value});
+        } else if (node instanceof Collision) {
+            Object[] array = ((Collision) node).array;
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i].equals(key)) {
+                    if (array[i + 1] == value) {
+                        return node;
+                    }
+                    Object[] copy = array.clone();
+                    copy[i + 1] = value;
+                    return new Collision(copy);
+                }
+            }
+            added[0] = true;
+            Object[] copy = new Object[array.length + 2];
+            System.arraycopy(array, 0, copy, 0, array.length);
+            copy[array.length] = key;
+            copy[array.length + 1] = value;
+            return new Collision(copy);
+        }
+        Bitmap b = (Bitmap) node;
+        int bit = 1 << ((hash >>> shift) & 31);
+        int i = ConfigSnapshot.index(b.bitmap, bit);
+        if ((b.bitmap & bit) == 0) {
+            added[0] = true;
+            Object[] copy = new Object[b.array.length + 2];
+            System.arraycopy(b.array, 0, copy, 0, i);
+            copy[i] = key;
+            copy[i + 1] = value;
+            System.arraycopy(b.array, i, copy, i + 2, b.array.length - i);
+            return new Bitmap(b.bitmap | bit, copy);
+        }
+        Object k = b.array[i];
+        Object v = b.array[i + 1];
+        Object[] copy;
+        if (k == null) {
+            Object child = ConfigSnapshot.assoc(v, shift + BITS, hash, key, value, added);
+            if (child == v) {
+                return node;
+            }
+            copy = b.array.clone();
+            copy[i + 1] = child;
+        } else if (k.equals(key)) {
+            if (v == value) {
+                return node;
+            }
+            copy = b.array.clone();
+            copy[i + 1] = value;
+        } else {
+            added[0] = true;
+            copy = b.array.clone();
+            copy[i] = null;
+            copy[i + 1] = ConfigSnapshot.merge(shift + BITS, (String) k, v, key, hash, value);
+        }
+        return new Bitmap(b.bitmap, copy);
+    }
+
+    private static Object merge(int shift, String key1, Object value1, String key2, int hash2, Object value2) {
+        int hash1 = key1.hashCode();
+        if (shift > MAX_SHIFT) {
+            return new Collision(new Object[]{key1, value1, key2, value2});
+        }
+        int bit1 = 1 << ((hash1 >>> shift) & 31);
+        int bit2 = 1 << ((hash2 >>> shift) & 31);
+        if (bit1 == bit2) {
+            return new Bitmap(bit1, new Object[]{null, ConfigSnapshot.merge(shift + BITS, key1, value1, key2, hash2, value2)});
+        }
+        return Integer.compareUnsigned(bit1, bit2) < 0
+                ? new Bitmap(bit1 | bit2, new Object[]{key1, value1, key2, value2})
+                : new Bitmap(bit1 | bit2, new Object[]{key2, value2, key1, value1});
+    }
+
+    private static Object dissoc(Object node, int shift, int hash, String key) {
+        if (node instanceof Collision) {
+            Object[] array = ((Collision) node).array;
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i].equals(key)) {
+                    if (array.length == 2) {
+                        return null;
+                    }
+                    Object[] copy = new Object[array.length - 2];
+                    System.arraycopy(array, 0, copy, 0, i);
+                    System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+                    return new Collision(copy);
+                }
+            }
+            return node;
+        } else if (node == null) {
+            return null;
+        }
+        Bitmap b = (Bitmap) node;
+        int bit = 1 << ((hash >>> shift) & 31);
+        if ((b.bitmap & bit) == 0) {
+            return node;
+        }
+        int i = ConfigSnapshot.index(b.bitmap, bit);
+        Object k = b.array[i];
+        if (k == null) {
+            Object child = ConfigSnapshot.dissoc(b.array[i + 1], shift + BITS, hash, key);
+            if (child == b.array[i + 1]) {
+                return node;
+            } else if (child != null) {
+                Object[] copy = b.array.clone();
+                copy[i + 1] = child;
+                return new Bitmap(b.bitmap, copy);
+            }
+        } else if (!k.equals(key)) {
+            return node;
+        }
+        if (b.bitmap == bit) {
+            return null;
+        }
+        Object[] copy = new Object[b.array.length - 2];
+        System.arraycopy(b.array, 0, copy, 0, i);
+        System.arraycopy(b.array, i + 2, copy, i, b.array.length - i - 2);
+        return new Bitmap(b.bitmap ^ bit, copy);
+    }
+
+    private static void forEach(Object node, BiConsumer<? super String, ? super Object> action) {
+        if (node == null) {
+            return;
+        }
+        Object[] array = node instanceof Bitmap ? ((Bitmap) node).array : ((Collision) node).array;
+        for (int i = 0; i < array.length; i += 2) {
+            if (array[i] == null) {
+                ConfigSnapshot.forEach(array[i + 1], action);
+            } else {
+                action.accept((String) array[i], array[i + 1]);
+            }
+        }
+    }
+
+    private static final class Bitmap {
+
+        private final int bitmap;
+        private final Object[] array; //key and value pairs, or null and a child node
+
+        private Bitmap(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+    }
+
+    private static final class Collision {
+
+        private final Object[] array; //key and value pairs of keys with the same hash
+
+        private Collision(Object[] array) {
+            this.array = array;
+        }
+
+    }
+
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.config;
+
+import com.codelanx.commons.data.CodecRegistry;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Compiled conversions of serialized collections and maps into typed
+ * containers for {@link ConfigFile#as(Class, Class)} and
+ * {@link ConfigFile#as(Class, Class, Class)}. The container factory is
+ * resolved once per container type and kept with that class, while the
+ * element {@link CodecRegistry.Codec} is taken from the {@link CodecRegistry}
+ * on each conversion, so that later registrations apply. Each conversion is
+ * a single pass into a presized container
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+final class Conversions {
+
+    /** The size from which random access lists are converted in parallel */
+    static final int PARALLEL_THRESHOLD = 4096;
+    private static final MethodType FACTORY = MethodType.methodType(Object.class);
+    //stored with each container class, so that no class is kept loaded by them
+    private static final ClassValue<IntFunction<?>> COLLECTIONS = new ClassValue<IntFunction<?>>() {
+        @Override
+        protected IntFunction<?> computeValue(Class<?> type) {
+            return Conversions.collectionFactory(type);
+        }
+    };
+    private static final ClassValue<IntFunction<?>> MAPS = new ClassValue<IntFunction<?>>() {
+        @Override
+        protected IntFunction<?> computeValue(Class<?> type) {
+            return Conversions.mapFactory(type);
+        }
+    };
+
+    private Conversions() {
+    }
+
+    /**
+     * Returns the conversion of serialized collections into the passed
+     * collection type holding the passed {@link
+     * com.codelanx.commons.data.FileSerializable} type
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param <G> The type of the elements
+     * @param <T> The type of the collection
+     * @param collection The class of the collection
+     * @param type The class of the elements
+     * @return The conversion, or {@code null} if either the collection cannot
+     *         be created or the elements cannot be deserialized
+     */
+    static <G, T extends Collection<G>> CollectionConversion<G, T> collection(Class<T> collection, Class<G> type) {
+        IntFunction<T> factory = (IntFunction<T>) COLLECTIONS.get(collection);
+        CodecRegistry.Codec<G> codec = factory == null ? null : CodecRegistry.get(type);
+        return codec == null ? null : new CollectionConversion<>(factory, type, codec);
+    }
+
+    /**
+     * Returns the conversion of serialized maps into the passed map type
+     * holding values of the passed {@link
+     * com.codelanx.commons.data.FileSerializable} type
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param <V> The type of the values
+     * @param <M> The type of the map
+     * @param map The class of the map
+     * @param value The class of the values
+     * @return The conversion, or {@code null} if either the map cannot be
+     *         created or the values cannot be deserialized
+     */
+    static <V, M extends Map<?, V>> MapConversion<V, M> map(Class<M> map, Class<V> value) {
+        IntFunction<M> factory = (IntFunction<M>) MAPS.get(map);
+        CodecRegistry.Codec<V> codec = factory == null ? null : CodecRegistry.get(value);
+        return codec == null ? null : new MapConversion<>(factory, value, codec);
+    }
+
+    private static <T> IntFunction<T> collectionFactory(Class<T> type) {
+        if (type == List.class || type == Collection.class || type == ArrayList.class) {
+            return size -> (T) new ArrayList<>(size);
+        } else if (type == Set.class || type == HashSet.class) {
+            return size -> (T) new HashSet<>(Conversions.capacity(size));
+        } else if (type == LinkedHashSet.class) {
+            return size -> (T) new LinkedHashSet<>(Conversions.capacity(size));
+        } else if (SortedSet.class.isAssignableFrom(type)) {
+            return null; //the deserialized elements are not known to be comparable
+        } else if (type == Queue.class || type == Deque.class || type == LinkedList.class) {
+            return size -> (T) new LinkedList<>(); //permits null elements, unlike ArrayDeque
+        }
+        return Conversions.constructorFactory(type);
+    }
+
+    private static <M> IntFunction<M> mapFactory(Class<M> type) {
+        if (type == Map.class || type == LinkedHashMap.class) {
+            return size -> (M) new LinkedHashMap<>(Conversions.capacity(size));
+        } else if (type == HashMap.class) {
+            return size -> (M) new HashMap<>(Conversions.capacity(size));
+        } else if (type == SortedMap.class || type == NavigableMap.class) {
+            return size -> (M) new TreeMap<>();
+        }
+        return Conversions.constructorFactory(type);
+    }
+
+    private static <T> IntFunction<T> constructorFactory(Class<T> type) {
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+        MethodHandle constructor;
+        try {
+            constructor = MethodHandles.publicLookup().findConstructor(type, MethodType.methodType(void.class)).asType(FACTORY);
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            return null;
+        }
+        return size -> {
+            try {
+                return (T) constructor.invokeExact();
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new IllegalStateException("Unable to create a " + type.getName(), ex);
+            }
+        };
+    }
+
+    private static int capacity(int size) {
+        return size < 3 ? size + 1 : (int) (size / 0.75F + 1);
+    }
+
+    private static <G> G element(Object o, Class<G> type, CodecRegistry.Codec<G> codec) {
+        if (o == null) {
+            return null;
+        } else if (type.isInstance(o)) {
+            return (G) o;
+        } else if (!(o instanceof Map)) {
+            throw new IllegalArgumentException("Cannot deserialize non-map object: " + o);
+        }
+        try {
+            return codec.deserialize((Map<String, Object>) o);
+        } catch (RuntimeException ex) {
+            throw new IllegalStateException("Mismatched serialization of " + type.getName(), ex);
+        }
+    }
+
+    static final class CollectionConversion<G, T extends Collection<G>> {
+
+        private final IntFunction<T> factory;
+        private final Class<G> type;
+        private final CodecRegistry.Codec<G> codec;
+
+        private CollectionConversion(IntFunction<T> factory, Class<G> type, CodecRegistry.Codec<G> codec) {
+            this.factory = factory;
+            this.type = type;
+            this.codec = codec;
+        }
+
+        /**
+         * Converts a serialized collection. Large random access lists are
+         * deserialized in parallel, keeping their order
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @param in The collection to convert
+         * @return A new collection of the converted elements
+         */
+        T convert(Collection<?> in) {
+            int size = in.size();
+            T back = this.factory.apply(size);
+            if (size >= PARALLEL_THRESHOLD && in instanceof List && in instanceof RandomAccess) {
+                List<?> src = (List<?>) in;
+                Object[] out = new Object[size];
+                IntStream.range(0, size).parallel().forEach(i -> out[i] = Conversions.element(src.get(i), this.type, this.codec));
+                back.addAll((List<G>) Arrays.asList(out));
+                return back;
+            }
+            for (Object o : in) {
+                back.add(Conversions.element(o, this.type, this.codec));
+            }
+            return back;
+        }
+
+    }
+
+    static final class MapConversion<V, M extends Map<?, V>> {
+
+        private final IntFunction<M> factory;
+        private final Class<V> type;
+        private final CodecRegistry.Codec<V> codec;
+
+        private MapConversion(IntFunction<M> factory, Class<V> type, CodecRegistry.Codec<V> codec) {
+            this.factory = factory;
+            this.type = type;
+            this.codec = codec;
+        }
+
+        /**
+         * Converts the values of a serialized map
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @param in The map to convert
+         * @param key The class of the keys
+         * @return A new map of the converted values
+         */
+        M convert(Map<?, ?> in, Class<?> key) {
+            Map<Object, V> back = (Map<Object, V>) this.factory.apply(in.size());
+            in.forEach((k, v) -> {
+                if (k != null && !key.isInstance(k)) {
+                    throw new IllegalArgumentException("Mismatched key type. Expected: " + key.getName() + ", found: " + k.getClass().getName());
+                }
+                back.put(k, Conversions.element(v, this.type, this.codec));
+            });
+            return (M) back;
+        }
+
+    }
+
+}
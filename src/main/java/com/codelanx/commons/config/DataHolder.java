@@ -20,23 +20,40 @@
 package com.codelanx.commons.config;
 
 import com.codelanx.commons.data.FileDataType;
+import com.codelanx.commons.util.exception.Exceptions;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Holds a reference to a {@link FileDataType} and initializes it upon the first
  * calling. This is meant for adding thread-safety to {@link InfoFile} calls
  * to {@link InfoFile#getConfig()} for the initialization of the underlying
- * {@link FileDataType} (thread-safe lazy initialization)
+ * {@link FileDataType} (thread-safe lazy initialization). The file can also
+ * be loaded ahead of its first use on a background thread through
+ * {@link #preload(InfoFile)}
  *
  * @since 0.1.0
  * @author 1Rogue
- * @version 0.1.0
+ * @version 0.3.3
  * 
  * @param <D> The type of the relevant {@link FileDataType}
  */
 public class DataHolder<D extends FileDataType> {
 
+    private static final ExecutorService LOADER = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "DataHolder-Loader");
+        t.setDaemon(true);
+        return t;
+    });
     private final Class<D> dataClass;
     private volatile D value = null;
+    private volatile CompletableFuture<D> loading;
+    private volatile boolean defaults;
 
     /**
      * Initializes this holder
@@ -51,23 +68,178 @@ public class DataHolder<D extends FileDataType> {
     }
 
     /**
-     * Returns (and potentially initializes) the underlying {@link FileDataType}
+     * Returns (and potentially initializes) the underlying {@link FileDataType}.
+     * If it is being preloaded, this waits for the preload to finish, unless
+     * it was preloaded with defaults, in which case {@code null} is returned
+     * until it is loaded
      * 
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.3.3
      * 
      * @param source The {@link InfoFile} calling this method
-     * @return The initialized {@link FileDataType}
+     * @return The initialized {@link FileDataType}, or {@code null} if it is
+     *         being preloaded with defaults
+     * @see #preload(InfoFile, boolean)
      */
     public D get(InfoFile source) {
-        if (this.value == null) {
-            synchronized (this) {
-                if (this.value == null) {
-                    this.value = source.init(this.dataClass);
-                }
+        return this.get(source, this.defaults);
+    }
+
+    /**
+     * Returns (and potentially initializes) the underlying {@link FileDataType}
+     * as by {@link #get(InfoFile)}, but waits for a preload with defaults as
+     * well. Meant for writes, which cannot be answered with the defaults
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param source The {@link InfoFile} calling this method
+     * @return The initialized {@link FileDataType}
+     * @see #preload(InfoFile, boolean)
+     */
+    public D await(InfoFile source) {
+        return this.get(source, false);
+    }
+
+    private D get(InfoFile source, boolean defaults) {
+        D back = this.value;
+        if (back != null) {
+            return back;
+        }
+        CompletableFuture<D> load = this.loading;
+        if (load != null) {
+            if (defaults && !load.isDone()) {
+                return null;
+            }
+            back = load.exceptionally(ex -> null).join();
+            if (back != null) {
+                return back;
+            }
+        }
+        synchronized (this) {
+            if (this.value != null) {
+                return this.value;
+            }
+            load = this.loading;
+            if (load == null || load.isCompletedExceptionally()) {
+                //not preloaded, or the preload failed and is tried again on this thread
+                this.value = source.init(this.dataClass);
+                return this.value;
+            }
+        }
+        //a preload was started in the meantime
+        return this.get(source, defaults);
+    }
+
+    /**
+     * Returns the underlying {@link FileDataType}, waiting at most the
+     * supplied time for it to be loaded. If it is not being loaded yet, it is
+     * preloaded as by {@link #preload(InfoFile)}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param source The {@link InfoFile} calling this method
+     * @param timeout The maximum time to wait
+     * @param unit The {@link TimeUnit} of {@code timeout}
+     * @return The initialized {@link FileDataType}, or {@code null} if the
+     *         waiting thread was interrupted
+     * @throws TimeoutException If the file was not loaded in time
+     * @throws IllegalStateException If the file failed to load
+     */
+    public D get(InfoFile source, long timeout, TimeUnit unit) throws TimeoutException {
+        D back = this.value;
+        if (back != null) {
+            return back;
+        }
+        try {
+            return this.preload(source).get(timeout, unit);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException ex) {
+            //the next preload tries again
+            throw new IllegalStateException("Unable to load the data file of '" + source.getClass().getName() + "'", ex.getCause());
+        }
+    }
+
+    /**
+     * Starts loading the underlying {@link FileDataType} on a background
+     * thread, including the creation of the file and saving of its default
+     * values. Until it is loaded, {@link #get(InfoFile)} waits for it
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param source The {@link InfoFile} to load the file of
+     * @return A future completed with the loaded {@link FileDataType}
+     */
+    public CompletableFuture<D> preload(InfoFile source) {
+        return this.preload(source, false);
+    }
+
+    /**
+     * Starts loading the underlying {@link FileDataType} on a background
+     * thread, including the creation of the file and saving of its default
+     * values. If the file is already being loaded, the running preload is
+     * returned instead. A preload which failed is started again
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param source The {@link InfoFile} to load the file of
+     * @param defaults {@code true} to answer {@link InfoFile#get()} with the
+     *                 default values until the file is loaded, instead of
+     *                 waiting for it. {@link InfoFile#getConfig()} returns
+     *                 {@code null} until then, while writes through the
+     *                 {@link InfoFile} wait for the file as by
+     *                 {@link #await(InfoFile)}
+     * @return A future completed with the loaded {@link FileDataType}
+     */
+    public synchronized CompletableFuture<D> preload(InfoFile source, boolean defaults) {
+        if (this.value != null) {
+            return CompletableFuture.completedFuture(this.value);
+        }
+        if (this.loading == null || this.loading.isCompletedExceptionally()) {
+            this.defaults = defaults;
+            this.loading = CompletableFuture.supplyAsync(() -> this.load(source), LOADER);
+        }
+        return this.loading;
+    }
+
+    /**
+     * Returns whether the underlying {@link FileDataType} is loaded
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return {@code true} if the file is loaded
+     */
+    public boolean isLoaded() {
+        return this.value != null;
+    }
+
+    /**
+     * Returns the class of the underlying {@link FileDataType}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The {@link FileDataType} type
+     */
+    public Class<D> getDataClass() {
+        return this.dataClass;
+    }
+
+    private D load(InfoFile source) {
+        D back = source.init(this.dataClass);
+        Exceptions.illegalState(back != null, "Unable to load the data file of '" + source.getClass().getName() + "'");
+        synchronized (this) {
+            if (this.value == null) {
+                this.value = back;
             }
+            return this.value;
         }
-        return this.value;
     }
 
 }
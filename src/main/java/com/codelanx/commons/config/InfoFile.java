@@ -34,7 +34,7 @@ import java.util.Arrays;
  *
  * @since 0.1.0
  * @author 1Rogue
- * @version 0.1.0
+ * @version 0.3.3
  */
 public interface InfoFile {
 
@@ -72,15 +72,18 @@ public interface InfoFile {
     }
 
     /**
-     * Gets the current object in memory
+     * Gets the current object in memory. If the {@link FileDataType} is
+     * still being preloaded with defaults, the default value is returned
      * 
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.3.3
      * 
      * @return The Object found at the relevant location
+     * @see DataHolder#preload(InfoFile, boolean)
      */
     default public Object get() {
-        return this.getConfig().get(this.getPath(), this.getDefault());
+        FileDataType data = this.getConfig();
+        return data == null ? this.getDefault() : data.get(this.getPath(), this.getDefault());
     }
 
     /**
@@ -164,16 +167,22 @@ public interface InfoFile {
     }
 
     /**
-     * Saves the current file data from memory to a specific {@link File}
+     * Saves the current file data from memory to a specific {@link File}. If
+     * the file is still being preloaded with defaults, this waits for it to
+     * be loaded
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.3.3
      * 
      * @param file The file to save to
      * @throws IOException Failed to save to the file
      */
     default public void save(File file) throws IOException {
-        this.getConfig().save();
+        FileDataType data = this.getConfig();
+        if (data == null) {
+            data = this.getData().await(this); //preloaded with defaults
+        }
+        data.save();
     }
 
 }
@@ -0,0 +1,339 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.config;
+
+import com.codelanx.commons.data.FileDataType;
+import com.codelanx.commons.logging.Debugger;
+import com.codelanx.commons.util.cache.ExpiringMap;
+import org.apache.commons.lang3.Validate;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves {@link LangFile} values in multiple locales. The file of a locale
+ * is a sibling of the {@link RelativePath} of the {@link LangFile}, suffixed
+ * with the locale (e.g. {@code lang/messages_de_DE.yml} for
+ * {@code lang/messages.yml}), and is only loaded once a value is requested
+ * in that locale. A value is resolved through the locale chain of the
+ * requested locale ({@code de_DE}, then {@code de}) and lastly the
+ * {@link LangFile} itself. Locales which were not used for the expiration
+ * time are evicted from memory, and loaded again when used again
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ *
+ * @param <E> The type of the {@link LangFile} keys
+ */
+public class LangBundle<E extends LangFile> {
+
+    private static final long TOUCH_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    private static final Object MISSING = new Object();
+    private final Locale base;
+    private final Map<Locale, Locale[]> chains = new ConcurrentHashMap<>();
+    private final Map<Locale, Bundle> loaded = new ConcurrentHashMap<>();
+    private final ExpiringMap<Locale, Bundle> expiry;
+    private final Object loadLock = new Object();
+
+    /**
+     * Creates a bundle which evicts locales unused for 10 minutes
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param base The locale of the {@link LangFile} file itself, or
+     *             {@code null} if it has none
+     */
+    public LangBundle(Locale base) {
+        this(base, 10, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Creates a bundle which evicts locales unused for the supplied time
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param base The locale of the {@link LangFile} file itself, or
+     *             {@code null} if it has none
+     * @param duration The time a locale may be unused before it is evicted
+     * @param unit The {@link TimeUnit} of {@code duration}
+     */
+    public LangBundle(Locale base, long duration, TimeUnit unit) {
+        Validate.isTrue(duration > 0, "Expiration duration must be positive");
+        Validate.notNull(unit, "TimeUnit cannot be null");
+        this.base = base;
+        this.expiry = ExpiringMap.builder()
+                .expiration(duration, unit)
+                .expirationPolicy(ExpiringMap.ExpirationPolicy.ACCESSED)
+                .onExpiry((Locale l, Bundle b) -> this.loaded.remove(l, b))
+                .build();
+    }
+
+    /**
+     * Returns the compiled {@link MessageTemplate} of a {@link LangFile} in
+     * the supplied locale. Templates are compiled once per locale, and values
+     * which equal the value of the {@link LangFile} itself share its template
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param key The {@link LangFile} to resolve
+     * @param locale The locale to resolve it in, {@code null} for the
+     *               {@link LangFile} itself
+     * @return The compiled {@link MessageTemplate}
+     */
+    public MessageTemplate template(E key, Locale locale) {
+        if (locale == null || key.getPath() == null) {
+            return key.template();
+        }
+        for (Locale l : this.chain(locale)) {
+            MessageTemplate back = this.bundle(key, l).template(key);
+            if (back != null) {
+                return back;
+            }
+        }
+        return key.template();
+    }
+
+    /**
+     * Returns the string value of a {@link LangFile} in the supplied locale
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param key The {@link LangFile} to resolve
+     * @param locale The locale to resolve it in
+     * @return The formatting string of the {@link LangFile}
+     * @see LangFile#get()
+     */
+    public String get(E key, Locale locale) {
+        return this.template(key, locale).getFormat();
+    }
+
+    /**
+     * Formats a {@link LangFile} in the supplied locale
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param key The {@link LangFile} to format
+     * @param locale The locale to format it in
+     * @param args The arguments to supply
+     * @return The formatted string
+     * @see LangFile#format(Object...)
+     */
+    public String format(E key, Locale locale, Object... args) {
+        return this.template(key, locale).render(args);
+    }
+
+    /**
+     * Formats a {@link LangFile} with plural tokens in the supplied locale
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param key The {@link LangFile} to format
+     * @param locale The locale to format it in
+     * @param amount The amount representative of the data token
+     * @param args The arguments to replace any other tokens with
+     * @return The formatted string
+     * @see LangFile#pluralFormat(int, Object...)
+     */
+    public String pluralFormat(E key, Locale locale, int amount, Object... args) {
+        return this.template(key, locale).renderPlural(amount, args);
+    }
+
+    /**
+     * Returns the {@link FileDataType} of a locale if it is currently loaded
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param locale The locale of the file
+     * @return The loaded {@link FileDataType}, or {@code null} if it is not
+     *         loaded or the locale has no file
+     */
+    public FileDataType getConfig(Locale locale) {
+        Bundle bundle = this.loaded.get(locale);
+        return bundle == null ? null : bundle.data;
+    }
+
+    /**
+     * Evicts a locale from memory, it will be loaded again on its next use
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param locale The locale to evict
+     */
+    public void evict(Locale locale) {
+        synchronized (this.loadLock) {
+            this.loaded.remove(locale);
+            this.expiry.remove(locale);
+        }
+    }
+
+    /**
+     * Evicts all locales from memory
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     */
+    public void clear() {
+        synchronized (this.loadLock) {
+            this.loaded.clear();
+            this.expiry.clear();
+        }
+    }
+
+    /**
+     * Returns the file of a locale for the supplied base file, which is the
+     * base file with the locale appended to its name
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param base The file of the {@link LangFile}
+     * @param locale The locale to return the file of
+     * @return The file of the locale
+     */
+    public static File getLocation(File base, Locale locale) {
+        String name = base.getName();
+        int dot = name.lastIndexOf('.');
+        name = dot < 1
+                ? name + '_' + locale
+                : name.substring(0, dot) + '_' + locale + name.substring(dot);
+        return new File(base.getParentFile(), name);
+    }
+
+    private Locale[] chain(Locale locale) {
+        Locale[] back = this.chains.get(locale);
+        if (back == null) {
+            List<Locale> chain = new ArrayList<>(3);
+            this.addChain(chain, locale);
+            this.addChain(chain, new Locale(locale.getLanguage(), locale.getCountry()));
+            this.addChain(chain, new Locale(locale.getLanguage()));
+            back = chain.toArray(new Locale[chain.size()]);
+            this.chains.put(locale, back);
+        }
+        return back;
+    }
+
+    private void addChain(List<Locale> chain, Locale locale) {
+        if (!locale.getLanguage().isEmpty() && !locale.equals(this.base) && !chain.contains(locale)) {
+            chain.add(locale);
+        }
+    }
+
+    private Bundle bundle(E key, Locale locale) {
+        Bundle back = this.loaded.get(locale);
+        if (back != null) {
+            long now = System.nanoTime();
+            if (now - back.touched > TOUCH_INTERVAL) {
+                //only touch the expiration once in a while, as it reschedules its timer
+                back.touched = now;
+                this.expiry.resetExpiration(locale);
+            }
+            return back;
+        }
+        synchronized (this.loadLock) {
+            back = this.loaded.get(locale);
+            if (back == null) {
+                back = new Bundle(this.load(key, locale));
+                this.expiry.put(locale, back);
+                this.loaded.put(locale, back);
+            }
+        }
+        return back;
+    }
+
+    private FileDataType load(E key, Locale locale) {
+        File file = LangBundle.getLocation(key.getFileLocation(), locale);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            return FileDataType.newInstance(key.getData().getDataClass(), file);
+        } catch (RuntimeException ex) {
+            Debugger.error(ex, "Error loading language file '%s'", file.getPath());
+            return null;
+        }
+    }
+
+    private static final class Bundle {
+
+        private final FileDataType data; //null if the locale has no file
+        private volatile Stamp stamp;
+        private volatile long touched = System.nanoTime();
+
+        private Bundle(FileDataType data) {
+            this.data = data;
+        }
+
+        private MessageTemplate template(LangFile key) {
+            if (this.data == null) {
+                return null;
+            }
+            Object root = this.data.getRoot();
+            Stamp stamp = this.stamp;
+            if (stamp == null || stamp.root != root) {
+                //the file was changed or reloaded
+                stamp = new Stamp(root);
+                this.stamp = stamp;
+            }
+            Object back = stamp.templates.get(key);
+            if (back == null) {
+                back = this.compile(key);
+                stamp.templates.put(key, back);
+            }
+            return back == MISSING ? null : (MessageTemplate) back;
+        }
+
+        private Object compile(LangFile key) {
+            Object value = this.data.get(key.getPath());
+            if (value == null) {
+                return MISSING;
+            }
+            String format = String.valueOf(value);
+            MessageTemplate shared = key.template();
+            return format.equals(shared.getFormat()) ? shared : MessageTemplate.compile(format);
+        }
+
+    }
+
+    private static final class Stamp {
+
+        private final Object root;
+        private final Map<LangFile, Object> templates = new ConcurrentHashMap<>();
+
+        private Stamp(Object root) {
+            this.root = root;
+        }
+
+    }
+
+}
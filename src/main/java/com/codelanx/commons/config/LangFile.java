@@ -64,13 +64,27 @@ public interface LangFile extends InfoFile {
      * Formats a {@link LangFile} enum constant with the supplied arguments
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.3.3
      *
      * @param args The arguments to supply
      * @return The formatted string
      */
     default public String format(Object... args) {
-        return String.format(this.get(), args);
+        return this.template().render(args);
+    }
+
+    /**
+     * Returns the compiled {@link MessageTemplate} of this {@link LangFile}.
+     * It is compiled once, and only compiled again when the underlying
+     * {@link FileDataType} is changed or reloaded
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The compiled template of {@link #get()}
+     */
+    default public MessageTemplate template() {
+        return ConfigCache.template(this);
     }
 
     /**
@@ -84,17 +98,14 @@ public interface LangFile extends InfoFile {
      * </ul>
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.3.3
      *
      * @param amount The amount representative of the data token
      * @param args The arguments to replace any other tokens with.
      * @return The formatting string value for plurals
      */
     default public String pluralFormat(int amount, Object... args) {
-        String repl = this.get();
-        repl = repl.replaceAll("\\{PLURALA (.*)\\|(.*)\\}", amount == 1 ? "is " + amount + " $1" : "are " + amount + " $2");
-        repl = repl.replaceAll("\\{PLURAL (.*)\\|(.*)\\}", amount == 1 ? "$1" : "$2");
-        return String.format(repl, args);
+        return this.template().renderPlural(amount, args);
     }
 
     /**
@@ -0,0 +1,422 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.config;
+
+import java.math.BigInteger;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.Formattable;
+import java.util.Formatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.MissingFormatArgumentException;
+import java.util.UnknownFormatConversionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A format string compiled for repeated rendering, as used by
+ * {@link LangFile#format(Object...)} and
+ * {@link LangFile#pluralFormat(int, Object...)}. The string is split once
+ * into literal segments, argument slots and plural tokens. Plain {@code %s}
+ * and {@code %d} slots are appended directly, while any other conversion is
+ * rendered by a {@link Formatter} with the same result as
+ * {@link String#format(String, Object...)}
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+public final class MessageTemplate {
+
+    //the format specifier syntax of java.util.Formatter
+    private static final Pattern SPECIFIER = Pattern.compile("%(\\d+\\$)?([-#+ 0,(<]*)?(\\d+)?(\\.\\d+)?([tT])?([a-zA-Z%])");
+    private static final String PLURAL = "{PLURAL ";
+    private static final String PLURAL_ARTICLE = "{PLURALA ";
+    private static final String NEWLINE = System.lineSeparator();
+    private static final int MAX_BUFFER = 8192;
+    private static final ThreadLocal<Buffer> BUFFER = ThreadLocal.withInitial(Buffer::new);
+    private static final int NONE = -1; //takes no argument
+    private static final int NEXT = -2; //the argument after the last ordinary one
+    private static final int PREVIOUS = -3; //the argument of the last specifier
+    private final String format;
+    private final Segment[] segments;
+    private final boolean dynamic;
+
+    private MessageTemplate(String format, Segment[] segments, boolean dynamic) {
+        this.format = format;
+        this.segments = segments;
+        this.dynamic = dynamic;
+    }
+
+    /**
+     * Compiles a format string, which may use any syntax of
+     * {@link Formatter} as well as the {@code {PLURAL one|many}} and
+     * {@code {PLURALA one|many}} tokens of
+     * {@link LangFile#pluralFormat(int, Object...)}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param format The format string to compile
+     * @return The compiled {@link MessageTemplate}
+     * @throws java.util.IllegalFormatException If the format string is
+     *                                          malformed
+     */
+    public static MessageTemplate compile(String format) {
+        //with plural tokens, which arguments are used depends on the rendering
+        boolean dynamic = format.contains(PLURAL) || format.contains(PLURAL_ARTICLE);
+        return new MessageTemplate(format, MessageTemplate.parse(format, 0, format.length(), dynamic, true), dynamic);
+    }
+
+    private static Segment[] parse(String format, int from, int to, boolean dynamic, boolean tokens) {
+        boolean asciiDigits = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)).getZeroDigit() == '0';
+        List<Segment> segments = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        Matcher m = SPECIFIER.matcher(format);
+        int ordinary = 0;
+        int last = -1;
+        int i = from;
+        while (i < to) {
+            char c = format.charAt(i);
+            if (c == '{' && tokens) {
+                boolean article = format.startsWith(PLURAL_ARTICLE, i);
+                if (article || format.startsWith(PLURAL, i)) {
+                    int start = i + (article ? PLURAL_ARTICLE : PLURAL).length();
+                    int split = format.indexOf('|', start);
+                    int end = split < 0 ? -1 : format.indexOf('}', split);
+                    if (end >= 0) {
+                        MessageTemplate.flush(literal, segments);
+                        //the words are formatted as well, sharing the arguments of the template
+                        segments.add(new Plural(article,
+                                MessageTemplate.parse(format, start, split, dynamic, false),
+                                MessageTemplate.parse(format, split + 1, end, dynamic, false)));
+                        i = end + 1;
+                        continue;
+                    }
+                }
+            } else if (c == '%') {
+                m.region(i, to);
+                if (!m.lookingAt()) {
+                    throw new UnknownFormatConversionException(i + 1 < to ? String.valueOf(format.charAt(i + 1)) : "%");
+                }
+                String flags = m.group(2) == null ? "" : m.group(2);
+                char conversion = m.group(6).charAt(0);
+                boolean plain = flags.isEmpty() && m.group(3) == null && m.group(4) == null && m.group(5) == null;
+                i = m.end();
+                if (conversion == 'n' && m.group(5) == null) {
+                    literal.append(NEWLINE);
+                    continue;
+                } else if (conversion == '%' && m.group(5) == null) {
+                    if (plain) {
+                        literal.append('%');
+                    } else {
+                        MessageTemplate.flush(literal, segments);
+                        segments.add(new Specifier(NONE, m.group(), m.group()));
+                    }
+                    continue;
+                }
+                int index;
+                if (m.group(1) != null) {
+                    index = Integer.parseInt(m.group(1).substring(0, m.group(1).length() - 1)) - 1;
+                } else if (flags.indexOf('<') >= 0) {
+                    index = dynamic ? PREVIOUS : last < 0 ? Integer.MAX_VALUE : last; //no previous argument, fails when rendered
+                } else {
+                    index = dynamic ? NEXT : ordinary++;
+                }
+                last = index;
+                MessageTemplate.flush(literal, segments);
+                if (plain && conversion == 's') {
+                    segments.add(new Text(index, m.group()));
+                } else if (plain && conversion == 'd' && asciiDigits) {
+                    segments.add(new Decimal(index, m.group()));
+                } else {
+                    //rewritten to take the argument alone
+                    String spec = "%1$" + flags.replace("<", "")
+                            + (m.group(3) == null ? "" : m.group(3))
+                            + (m.group(4) == null ? "" : m.group(4))
+                            + (m.group(5) == null ? "" : m.group(5))
+                            + conversion;
+                    segments.add(new Specifier(index, spec, m.group()));
+                }
+                continue;
+            }
+            literal.append(c);
+            i++;
+        }
+        MessageTemplate.flush(literal, segments);
+        return segments.toArray(new Segment[segments.size()]);
+    }
+
+    private static void flush(StringBuilder literal, List<Segment> segments) {
+        if (literal.length() > 0) {
+            segments.add(new Literal(literal.toString()));
+            literal.setLength(0);
+        }
+    }
+
+    /**
+     * Renders this template with the passed arguments. Plural tokens are left
+     * in place with both of their words formatted, as by
+     * {@link LangFile#format(Object...)}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param args The arguments for the template's slots
+     * @return The rendered string
+     */
+    public String render(Object... args) {
+        return this.render(false, 0, args);
+    }
+
+    /**
+     * Renders this template with the passed arguments, choosing the words of
+     * any plural tokens by the passed amount
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param amount The amount deciding the plural tokens
+     * @param args The arguments for the template's slots
+     * @return The rendered string
+     */
+    public String renderPlural(int amount, Object... args) {
+        return this.render(true, amount, args);
+    }
+
+    private String render(boolean plural, int amount, Object[] args) {
+        Buffer buffer = BUFFER.get();
+        if (buffer.busy) {
+            //rendered from within an argument's toString
+            return this.append(new StringBuilder(), plural, amount, args).toString();
+        }
+        buffer.busy = true;
+        try {
+            buffer.out.setLength(0);
+            return this.append(buffer.out, plural, amount, args).toString();
+        } finally {
+            if (buffer.out.capacity() > MAX_BUFFER) {
+                buffer.out = new StringBuilder();
+            }
+            buffer.busy = false;
+        }
+    }
+
+    /**
+     * Appends this template rendered with the passed arguments to a
+     * {@link StringBuilder}, as by {@link #render(Object...)}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param out The {@link StringBuilder} to append to
+     * @param args The arguments for the template's slots
+     * @return The passed {@link StringBuilder}
+     */
+    public StringBuilder renderTo(StringBuilder out, Object... args) {
+        return this.append(out, false, 0, args);
+    }
+
+    /**
+     * Appends this template rendered with the passed arguments to a
+     * {@link StringBuilder}, as by {@link #renderPlural(int, Object...)}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param out The {@link StringBuilder} to append to
+     * @param amount The amount deciding the plural tokens
+     * @param args The arguments for the template's slots
+     * @return The passed {@link StringBuilder}
+     */
+    public StringBuilder renderPluralTo(StringBuilder out, int amount, Object... args) {
+        return this.append(out, true, amount, args);
+    }
+
+    private StringBuilder append(StringBuilder out, boolean plural, int amount, Object[] args) {
+        Object[] in = args == null ? new Object[0] : args;
+        MessageTemplate.append(this.segments, out, plural, amount, in, this.dynamic ? new Cursor() : null);
+        return out;
+    }
+
+    private static void append(Segment[] segments, StringBuilder out, boolean plural, int amount, Object[] args, Cursor cursor) {
+        for (Segment s : segments) {
+            s.append(out, plural, amount, args, cursor);
+        }
+    }
+
+    /**
+     * Returns the format string this template was compiled from
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The original format string
+     */
+    public String getFormat() {
+        return this.format;
+    }
+
+    @Override
+    public String toString() {
+        return this.format;
+    }
+
+    private static interface Segment {
+
+        public void append(StringBuilder out, boolean plural, int amount, Object[] args, Cursor cursor);
+
+    }
+
+    private static final class Literal implements Segment {
+
+        private final String text;
+
+        private Literal(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public void append(StringBuilder out, boolean plural, int amount, Object[] args, Cursor cursor) {
+            out.append(this.text);
+        }
+
+    }
+
+    private static final class Plural implements Segment {
+
+        private final boolean article;
+        private final Segment[] one;
+        private final Segment[] many;
+
+        private Plural(boolean article, Segment[] one, Segment[] many) {
+            this.article = article;
+            this.one = one;
+            this.many = many;
+        }
+
+        @Override
+        public void append(StringBuilder out, boolean plural, int amount, Object[] args, Cursor cursor) {
+            if (!plural) {
+                out.append(this.article ? PLURAL_ARTICLE : PLURAL);
+                MessageTemplate.append(this.one, out, false, amount, args, cursor);
+                out.append('|');
+                MessageTemplate.append(this.many, out, false, amount, args, cursor);
+                out.append('}');
+                return;
+            }
+            if (this.article) {
+                out.append(amount == 1 ? "is " : "are ").append(amount).append(' ');
+            }
+            MessageTemplate.append(amount == 1 ? this.one : this.many, out, true, amount, args, cursor);
+        }
+
+    }
+
+    private static class Specifier implements Segment {
+
+        protected final int index;
+        private final String spec;
+        private final String original;
+
+        private Specifier(int index, String spec, String original) {
+            this.index = index;
+            this.spec = spec;
+            this.original = original;
+        }
+
+        protected final Object arg(Object[] args, Cursor cursor) {
+            int at = this.index;
+            if (cursor != null) {
+                at = at == NEXT ? cursor.next++ : at == PREVIOUS ? cursor.last : at;
+                cursor.last = at;
+            }
+            if (at < 0 || at >= args.length) {
+                throw new MissingFormatArgumentException(this.original);
+            }
+            return args[at];
+        }
+
+        @Override
+        public void append(StringBuilder out, boolean plural, int amount, Object[] args, Cursor cursor) {
+            this.format(out, this.index == NONE ? null : this.arg(args, cursor));
+        }
+
+        protected final void format(StringBuilder out, Object arg) {
+            new Formatter(out, Locale.getDefault(Locale.Category.FORMAT)).format(this.spec, arg);
+        }
+
+    }
+
+    private static final class Text extends Specifier {
+
+        private Text(int index, String original) {
+            super(index, "%1$s", original);
+        }
+
+        @Override
+        public void append(StringBuilder out, boolean plural, int amount, Object[] args, Cursor cursor) {
+            Object arg = this.arg(args, cursor);
+            if (arg instanceof Formattable) {
+                this.format(out, arg);
+            } else {
+                out.append(arg);
+            }
+        }
+
+    }
+
+    private static final class Decimal extends Specifier {
+
+        private Decimal(int index, String original) {
+            super(index, "%1$d", original);
+        }
+
+        @Override
+        public void append(StringBuilder out, boolean plural, int amount, Object[] args, Cursor cursor) {
+            Object arg = this.arg(args, cursor);
+            if (arg instanceof Integer || arg instanceof Long || arg instanceof Short || arg instanceof Byte) {
+                out.append(((Number) arg).longValue());
+            } else if (arg instanceof BigInteger) {
+                out.append(arg);
+            } else {
+                this.format(out, arg); //nulls and mismatched types
+            }
+        }
+
+    }
+
+    //the arguments used so far while rendering a template with plural tokens
+    private static final class Cursor {
+
+        private int next;
+        private int last = -1;
+
+    }
+
+    private static final class Buffer {
+
+        private StringBuilder out = new StringBuilder(128);
+        private boolean busy;
+
+    }
+
+}
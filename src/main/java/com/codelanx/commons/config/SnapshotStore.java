@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.config;
+
+import com.codelanx.commons.data.FileDataType;
+import org.apache.commons.lang3.Validate;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Holds the current version of a {@link ConfigSnapshot}. Writers publish a
+ * new version atomically, while readers either read through this store or
+ * hold on to a {@link #snapshot()}, which stays consistent for as long as it
+ * is used
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+public class SnapshotStore {
+
+    private final AtomicReference<ConfigSnapshot> current;
+
+    /**
+     * Creates an empty store
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     */
+    public SnapshotStore() {
+        this(ConfigSnapshot.empty());
+    }
+
+    /**
+     * Creates a store starting at the supplied snapshot
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param initial The initial {@link ConfigSnapshot}
+     */
+    public SnapshotStore(ConfigSnapshot initial) {
+        Validate.notNull(initial, "Initial snapshot cannot be null");
+        this.current = new AtomicReference<>(initial);
+    }
+
+    /**
+     * Creates a store starting at the current values of a
+     * {@link FileDataType}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param data The {@link FileDataType} to copy
+     * @see ConfigSnapshot#of(FileDataType)
+     */
+    public SnapshotStore(FileDataType data) {
+        this(ConfigSnapshot.of(data));
+    }
+
+    /**
+     * Returns the current version, which may be cached and read by any
+     * number of threads
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The current {@link ConfigSnapshot}
+     */
+    public ConfigSnapshot snapshot() {
+        return this.current.get();
+    }
+
+    /**
+     * Gets the object at the specified path in the current version
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param path The path to get, delimited by '{@code .}'
+     * @param def The default value to return upon not finding a value
+     * @return The relevant object, or the default if no value is found
+     */
+    public Object get(String path, Object def) {
+        return this.current.get().get(path, def);
+    }
+
+    /**
+     * Sets a value and publishes the resulting version
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param path The path to set, delimited by '{@code .}'
+     * @param value The value to set, or {@code null} to remove it
+     * @return The published {@link ConfigSnapshot}
+     * @see ConfigSnapshot#set(String, Object)
+     */
+    public ConfigSnapshot set(String path, Object value) {
+        return this.update(s -> s.set(path, value));
+    }
+
+    /**
+     * Applies a change to the current version and publishes the result. The
+     * change is applied again if another writer published a version in the
+     * meantime, so it should not have side effects
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param change The change to apply
+     * @return The published {@link ConfigSnapshot}
+     */
+    public ConfigSnapshot update(UnaryOperator<ConfigSnapshot> change) {
+        return this.current.updateAndGet(change);
+    }
+
+    /**
+     * Replaces the current version
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param snapshot The {@link ConfigSnapshot} to publish
+     */
+    public void publish(ConfigSnapshot snapshot) {
+        Validate.notNull(snapshot, "Snapshot cannot be null");
+        this.current.set(snapshot);
+    }
+
+    /**
+     * Returns a {@link MemoryConfig} which reads and writes a single path of
+     * this store. Its typed accessors such as {@link ConfigFile#asInt()}
+     * convert the value of the current snapshot on each call
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param <T> The type of the value
+     * @param path The path of the value, delimited by '{@code .}'
+     * @param def The value to return while the path is not set
+     * @return A {@link MemoryConfig} view of the path
+     */
+    public <T> MemoryConfig<T> memory(String path, T def) {
+        return new MemoryConfig<T>() {
+
+            @Override
+            public T getValue() {
+                return (T) SnapshotStore.this.get(path, def);
+            }
+
+            @Override
+            public void setValue(T val) {
+                SnapshotStore.this.set(path, val);
+            }
+
+            @Override
+            public Object getDefault() {
+                return def;
+            }
+
+            //converted straight from the current snapshot, which has no file to cache against
+            @Override
+            public int asInt() {
+                return this.as(int.class);
+            }
+
+            @Override
+            public long asLong() {
+                return this.as(long.class);
+            }
+
+            @Override
+            public double asDouble() {
+                return this.as(double.class);
+            }
+
+            @Override
+            public float asFloat() {
+                return this.as(float.class);
+            }
+
+            @Override
+            public boolean asBoolean() {
+                return this.as(boolean.class);
+            }
+
+            @Override
+            public String asString() {
+                return this.as(String.class);
+            }
+
+        };
+    }
+
+}
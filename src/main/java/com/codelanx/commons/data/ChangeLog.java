@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.data;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only sidecar log of changes made to a {@link FileDataType}.
+ * Each record is framed by its length and a CRC32 checksum, so that a record
+ * torn by a crash is detected and discarded on replay. During compaction the
+ * log is rotated aside, and removed once the base file has been rewritten
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+final class ChangeLog {
+
+    private static final int HEADER = 8; //length + checksum
+    private final Path path;
+    private final Path rotated;
+    private final long threshold;
+    private FileChannel channel; //guarded by this
+    private boolean compacting; //guarded by this
+
+    ChangeLog(Path path, long threshold) {
+        this.path = path;
+        this.rotated = path.resolveSibling(path.getFileName() + ".old");
+        this.threshold = threshold;
+    }
+
+    /**
+     * Passes every intact record, from the rotated log and then the current
+     * one, to the passed consumer, and opens the log for appending. A torn
+     * record at the end of the current log is truncated away
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param records Called with each record's payload
+     * @throws IOException If a log could not be read or opened
+     */
+    synchronized void open(RecordConsumer records) throws IOException {
+        if (Files.exists(this.rotated)) {
+            ChangeLog.replay(this.rotated, records);
+        }
+        long valid = Files.exists(this.path) ? ChangeLog.replay(this.path, records) : 0;
+        this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.channel.truncate(valid);
+        this.channel.position(valid);
+    }
+
+    private static long replay(Path log, RecordConsumer records) throws IOException {
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            //read rather than mapped, as a mapped file cannot be truncated on Windows
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), Integer.MAX_VALUE));
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0);
+            ((Buffer) buffer).flip();
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() >= HEADER) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    return start;
+                }
+                ByteBuffer record = buffer.slice();
+                ((Buffer) record).limit(length);
+                crc.reset();
+                crc.update(record.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    return start;
+                }
+                records.accept(record);
+                ((Buffer) buffer).position(start + HEADER + length);
+            }
+            return buffer.position();
+        }
+    }
+
+    /**
+     * Appends a record to the log, without syncing it to the disk
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param record The record's payload
+     * @return {@code true} if the log has grown past its compaction threshold
+     *         and no compaction is already running, in which case the caller
+     *         is expected to compact it
+     * @throws IOException If the record could not be written
+     */
+    synchronized boolean append(byte[] record) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        ByteBuffer frame = ByteBuffer.allocate(HEADER + record.length);
+        frame.putInt(record.length).putInt((int) crc.getValue()).put(record);
+        ((Buffer) frame).flip();
+        while (frame.hasRemaining()) {
+            this.channel.write(frame);
+        }
+        if (!this.compacting && this.channel.size() > this.threshold) {
+            this.compacting = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Forces every appended record to the disk
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @throws IOException If the log could not be synced
+     */
+    void sync() throws IOException {
+        FileChannel current;
+        synchronized (this) {
+            current = this.channel;
+        }
+        try {
+            current.force(false);
+        } catch (ClosedChannelException ex) {
+            //discarded in the meantime, after its records were compacted
+        }
+    }
+
+    /**
+     * Moves the current log aside and starts a new one. The caller must
+     * ensure no records are appended until this returns
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @throws IOException If the log could not be rotated
+     */
+    synchronized void rotate() throws IOException {
+        this.channel.force(false);
+        if (Files.exists(this.rotated)) {
+            //a previous compaction failed, so its records must be kept as well
+            try (FileChannel old = FileChannel.open(this.rotated, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                long size = this.channel.size();
+                for (long pos = 0; pos < size; ) {
+                    pos += this.channel.transferTo(pos, size - pos, old);
+                }
+                old.force(false);
+            }
+            this.channel.truncate(0);
+            this.channel.position(0);
+            this.channel.force(false);
+            return;
+        }
+        this.channel.close();
+        Files.move(this.path, this.rotated, StandardCopyOption.ATOMIC_MOVE);
+        this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Deletes the rotated log once its records are part of the base file, and
+     * allows the next compaction
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param success {@code false} if the base file could not be rewritten,
+     *                in which case the rotated log is kept
+     * @throws IOException If the rotated log could not be deleted
+     */
+    synchronized void compacted(boolean success) throws IOException {
+        this.compacting = false;
+        if (success) {
+            Files.deleteIfExists(this.rotated);
+        }
+    }
+
+    /**
+     * Discards every record, after the data in memory replaced the base file
+     * the records were made against
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @throws IOException If the logs could not be cleared
+     */
+    synchronized void reset() throws IOException {
+        this.channel.truncate(0);
+        this.channel.position(0);
+        this.channel.force(false);
+        Files.deleteIfExists(this.rotated);
+    }
+
+    /**
+     * Closes the log and deletes its files. The caller must ensure that its
+     * records are already part of the base file
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @throws IOException If the log could not be closed or deleted
+     */
+    synchronized void discard() throws IOException {
+        this.channel.close();
+        Files.deleteIfExists(this.path);
+        Files.deleteIfExists(this.rotated);
+    }
+
+    @FunctionalInterface
+    static interface RecordConsumer {
+
+        public void accept(ByteBuffer record) throws IOException;
+
+    }
+
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.data;
+
+import com.codelanx.commons.logging.Debugger;
+import com.google.common.collect.MapMaker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resolves the classes named by serialized {@link FileSerializable} objects
+ * into {@link Codec Codecs}. Each class is looked up once, and its
+ * {@code Map<String, Object>} constructor is bound into a cached
+ * {@link MethodHandle}, so repeated deserialization does not repeat any
+ * reflection. Classes may also register an explicit {@link Codec}, which
+ * allows types that do not implement {@link FileSerializable} to be stored
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+public final class CodecRegistry {
+
+    private static final Codec<Object> NONE = new Codec<Object>() {
+        @Override
+        public Object deserialize(Map<String, Object> data) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<String, Object> serialize(Object value) {
+            throw new UnsupportedOperationException();
+        }
+    };
+    private static final MethodType FACTORY = MethodType.methodType(Object.class, Map.class);
+    //stored with each class itself, so that a compiled codec never outlives its class
+    private static final ClassValue<Codec<?>> COMPILED = new ClassValue<Codec<?>>() {
+        @Override
+        protected Codec<?> computeValue(Class<?> type) {
+            return CodecRegistry.compile(type);
+        }
+    };
+    //weakly keyed, which lets a class unload unless its registered codec references it
+    private static final Map<Class<?>, Codec<?>> EXPLICIT = new MapMaker().weakKeys().makeMap();
+    private static final Map<String, Codec<?>> KEYS = new MapMaker().weakValues().makeMap();
+
+    private CodecRegistry() {
+    }
+
+    /**
+     * Registers an explicit {@link Codec} for a class, which takes precedence
+     * over its {@link FileSerializable} implementation (if any). Values of
+     * exactly this class are then saved through the {@link Codec}, with the
+     * class name stored under {@link FileSerializable#IDENTIFIER_KEY}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param <T> The type of the class
+     * @param type The class to register a {@link Codec} for
+     * @param codec The {@link Codec} to use
+     */
+    public static <T> void register(Class<T> type, Codec<T> codec) {
+        EXPLICIT.put(type, codec);
+        KEYS.put(type.getName(), codec);
+    }
+
+    /**
+     * Returns the {@link Codec} for the passed class, resolving it on first
+     * use
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param <T> The type of the class
+     * @param type The class to get a {@link Codec} for
+     * @return The relevant {@link Codec}, or {@code null} if the class has
+     *         neither a registered {@link Codec} nor a
+     *         {@code Map<String, Object>} constructor
+     */
+    public static <T> Codec<T> get(Class<T> type) {
+        Codec<?> back = EXPLICIT.get(type);
+        if (back == null) {
+            back = COMPILED.get(type);
+        }
+        return back == NONE ? null : (Codec<T>) back;
+    }
+
+    /**
+     * Returns the {@link Codec} for a class name, as stored under
+     * {@link FileSerializable#IDENTIFIER_KEY}. The class is loaded on first
+     * use, and a class which cannot be found is reported once
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param key The name of the class
+     * @return The relevant {@link Codec}, or {@code null} if there is none
+     */
+    public static Codec<?> get(String key) {
+        Codec<?> back = KEYS.computeIfAbsent(key, k -> {
+            try {
+                Codec<?> codec = CodecRegistry.get(Class.forName(k));
+                return codec == null ? NONE : codec;
+            } catch (ClassNotFoundException e) {
+                Debugger.error(e, "Attempted to deserialize nonexistant class: '%s'", k);
+                return NONE;
+            }
+        });
+        return back == NONE ? null : back;
+    }
+
+    /**
+     * Serializes an object of a class with an explicitly registered
+     * {@link Codec}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param value The object to serialize
+     * @return The serialized object, including its identifier key, or
+     *         {@code null} if its class has no registered {@link Codec}
+     */
+    public static Map<String, Object> serialize(Object value) {
+        Codec<Object> codec = (Codec<Object>) EXPLICIT.get(value.getClass());
+        if (codec == null) {
+            return null;
+        }
+        Map<String, Object> back = new LinkedHashMap<>();
+        back.put(FileSerializable.IDENTIFIER_KEY, value.getClass().getName());
+        back.putAll(codec.serialize(value));
+        return back;
+    }
+
+    private static Codec<?> compile(Class<?> type) {
+        if (!FileSerializable.class.isAssignableFrom(type)) {
+            Debugger.error(new IllegalArgumentException("Cannot deserialize a non FileSerializable"), "Listed class does not implement FileSerializable");
+            return NONE;
+        }
+        try {
+            Constructor<?> con = type.getDeclaredConstructor(Map.class);
+            con.setAccessible(true);
+            MethodHandle factory = MethodHandles.lookup().unreflectConstructor(con).asType(FACTORY);
+            return new HandleCodec(type, factory);
+        } catch (NoSuchMethodException e) {
+            Debugger.error(e, "%s is missing a Map<String, Object> constructor", type.getName());
+        } catch (IllegalAccessException e) {
+            Debugger.error(e, "Unable to access the Map<String, Object> constructor of %s", type.getName());
+        }
+        return NONE;
+    }
+
+    /**
+     * Converts objects of a single type to and from their serialized form
+     *
+     * @since 0.3.3
+     * @author 1Rogue
+     * @version 0.3.3
+     *
+     * @param <T> The type handled by this {@link Codec}
+     */
+    public static interface Codec<T> {
+
+        /**
+         * Creates an object from its serialized form
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @param data The serialized data, without the identifier key
+         * @return The deserialized object
+         */
+        public T deserialize(Map<String, Object> data);
+
+        /**
+         * Converts an object into a mapping of serializable values
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @param value The object to serialize
+         * @return The serialized data, without the identifier key
+         */
+        public Map<String, Object> serialize(T value);
+
+    }
+
+    private static final class HandleCodec implements Codec<Object> {
+
+        private final Class<?> type;
+        private final MethodHandle factory;
+
+        private HandleCodec(Class<?> type, MethodHandle factory) {
+            this.type = type;
+            this.factory = factory;
+        }
+
+        @Override
+        public Object deserialize(Map<String, Object> data) {
+            try {
+                return this.factory.invokeExact(data);
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new IllegalStateException("Error while instantiating '" + this.type.getName() + "'", ex);
+            }
+        }
+
+        @Override
+        public Map<String, Object> serialize(Object value) {
+            return ((FileSerializable) value).serialize();
+        }
+
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.data;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Loads many {@link FileDataType} files at once, parsing them in parallel on
+ * a bounded {@link ForkJoinPool}. A file which fails to load is reported in
+ * the {@link Result} instead of aborting the rest of the batch
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+public final class FileDataLoader {
+
+    private FileDataLoader() {
+    }
+
+    /**
+     * Loads every regular file directly within a directory, using one thread
+     * per available processor
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param <T> The type of {@link FileDataType} to load
+     * @param type The class of the {@link FileDataType} to load
+     * @param directory The directory to load files from
+     * @return The {@link Result} of loading the files
+     * @throws IOException If the directory could not be listed
+     */
+    public static <T extends FileDataType> Result<T> load(Class<T> type, Path directory) throws IOException {
+        return FileDataLoader.load(type, directory, "*");
+    }
+
+    /**
+     * Loads every regular file directly within a directory whose name matches
+     * the passed glob (e.g. {@code "*.yml"}), using one thread per available
+     * processor
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param <T> The type of {@link FileDataType} to load
+     * @param type The class of the {@link FileDataType} to load
+     * @param directory The directory to load files from
+     * @param glob The glob pattern file names must match
+     * @return The {@link Result} of loading the files
+     * @throws IOException If the directory could not be listed
+     * @see java.nio.file.FileSystem#getPathMatcher(String)
+     */
+    public static <T extends FileDataType> Result<T> load(Class<T> type, Path directory, String glob) throws IOException {
+        return FileDataLoader.load(type, directory, glob, false, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Loads every regular file directly within a directory whose name matches
+     * the passed glob (e.g. {@code "*.yml"})
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param <T> The type of {@link FileDataType} to load
+     * @param type The class of the {@link FileDataType} to load
+     * @param directory The directory to load files from
+     * @param glob The glob pattern file names must match
+     * @param lazy {@code true} to deserialize values on demand
+     * @param parallelism The maximum number of files to parse at once
+     * @return The {@link Result} of loading the files
+     * @throws IOException If the directory could not be listed
+     * @see FileDataType#newInstance(Class, File, boolean)
+     */
+    public static <T extends FileDataType> Result<T> load(Class<T> type, Path directory, String glob, boolean lazy, int parallelism) throws IOException {
+        Validate.isTrue(Files.isDirectory(directory), "Cannot load files from a non-directory: " + directory);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path p : stream) {
+                if (Files.isRegularFile(p)) {
+                    files.add(p);
+                }
+            }
+        }
+        Collections.sort(files);
+        return FileDataLoader.load(type, files, lazy, parallelism);
+    }
+
+    /**
+     * Loads each of the passed files
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param <T> The type of {@link FileDataType} to load
+     * @param type The class of the {@link FileDataType} to load
+     * @param files The files to load
+     * @param lazy {@code true} to deserialize values on demand
+     * @param parallelism The maximum number of files to parse at once
+     * @return The {@link Result} of loading the files
+     */
+    public static <T extends FileDataType> Result<T> load(Class<T> type, Collection<Path> files, boolean lazy, int parallelism) {
+        Validate.isTrue(parallelism > 0, "Parallelism must be positive");
+        Constructor<T> con;
+        try {
+            con = lazy ? type.getDeclaredConstructor(File.class, boolean.class) : type.getDeclaredConstructor(File.class);
+            con.setAccessible(true);
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalArgumentException("No " + (lazy ? "lazy " : "") + "File constructor found in FileDataType '" + type.getName() + "'", ex);
+        }
+        List<Path> paths = new ArrayList<>(files);
+        Object[] loaded = new Object[paths.size()];
+        Throwable[] errors = new Throwable[paths.size()];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(paths.size());
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, Math.max(1, paths.size())));
+        try {
+            for (int i = 0; i < paths.size(); i++) {
+                int index = i;
+                File file = paths.get(i).toFile();
+                tasks.add(pool.submit(() -> {
+                    try {
+                        loaded[index] = lazy ? con.newInstance(file, true) : con.newInstance(file);
+                    } catch (InvocationTargetException ex) {
+                        errors[index] = ex.getCause();
+                    } catch (Throwable ex) {
+                        errors[index] = ex;
+                    }
+                }));
+            }
+            tasks.forEach(ForkJoinTask::join);
+        } finally {
+            pool.shutdown();
+        }
+        Map<Path, T> back = new LinkedHashMap<>();
+        Map<Path, Throwable> failed = new LinkedHashMap<>();
+        for (int i = 0; i < paths.size(); i++) {
+            if (errors[i] != null) {
+                failed.put(paths.get(i), errors[i]);
+            } else {
+                back.put(paths.get(i), (T) loaded[i]);
+            }
+        }
+        return new Result<>(back, failed);
+    }
+
+    /**
+     * The outcome of a bulk load, holding every file which was loaded and the
+     * errors for any that were not
+     *
+     * @since 0.3.3
+     * @author 1Rogue
+     * @version 0.3.3
+     *
+     * @param <T> The type of {@link FileDataType} that was loaded
+     */
+    public static final class Result<T extends FileDataType> {
+
+        private final Map<Path, T> loaded;
+        private final Map<Path, Throwable> errors;
+
+        private Result(Map<Path, T> loaded, Map<Path, Throwable> errors) {
+            this.loaded = Collections.unmodifiableMap(loaded);
+            this.errors = Collections.unmodifiableMap(errors);
+        }
+
+        /**
+         * Returns the successfully loaded files, in the order they were given
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @return A {@link Map} of each file to its {@link FileDataType}
+         */
+        public Map<Path, T> getLoaded() {
+            return this.loaded;
+        }
+
+        /**
+         * Returns the error which stopped each failed file from loading
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @return A {@link Map} of each failed file to its error
+         */
+        public Map<Path, Throwable> getErrors() {
+            return this.errors;
+        }
+
+        /**
+         * Returns whether every file was loaded
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @return {@code true} if no file failed to load
+         */
+        public boolean isComplete() {
+            return this.errors.isEmpty();
+        }
+
+    }
+
+}
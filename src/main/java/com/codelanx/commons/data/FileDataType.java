@@ -20,67 +20,143 @@
 package com.codelanx.commons.data;
 
 import com.codelanx.commons.config.ConfigFile;
+import com.codelanx.commons.data.types.Binary;
 import com.codelanx.commons.data.types.Json;
 import com.codelanx.commons.data.types.Yaml;
 import com.codelanx.commons.data.types.XML;
 import com.codelanx.commons.logging.Debugger;
 import com.codelanx.commons.logging.Logging;
+import com.codelanx.commons.util.Parallel;
 import com.codelanx.commons.util.Reflections;
 import com.codelanx.commons.util.exception.Exceptions;
-import org.apache.commons.io.FileUtils;
+import com.google.common.collect.MapMaker;
 import org.apache.commons.lang3.Validate;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.ParseException;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Type;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
-import java.util.ArrayList;
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Opens and loads a file into memory using the appropriate data type. This
  * data type should have a single-argument constructor which takes a
  * {@link File} argument.
+ * <br><br>
+ * The loaded tree is copy-on-write: a write copies the mappings along its
+ * path and publishes a new root, so readers never block and always see a
+ * consistent tree, while writers are serialized against each other.
+ * Mappings and series handed out by the getters are read-only views of the
+ * tree, so changes are always made through {@link #set(String, Object)}.
  *
  * @since 0.1.0
  * @author 1Rogue
- * @version 0.1.0
+ * @version 0.3.3
  */
-//TODO: Thread safety for non-initial files, thread safety on indexes, incremental saving
 public abstract class FileDataType implements DataType {
 
     protected static final boolean DEBUG_SERIALIZATION = true; //if true, will serialize on all #set calls
     protected static final String NEWLINE = System.getProperty("line.separator");
-    private static final ExecutorService SAVER = Executors.newSingleThreadScheduledExecutor();
+    //files from this size on are memory mapped rather than read into a buffer
+    private static final long MAP_THRESHOLD = 1 << 20;
+    /** The default delay of {@link #saveAsync()}, in milliseconds */
+    public static final long DEFAULT_SAVE_DELAY = 250;
+    private static final ScheduledExecutorService SAVER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "FileDataType-Saver");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final Set<FileDataType> PENDING = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(FileDataType::flushAll, "FileDataType-Flush"));
+    }
 
     protected final ReadWriteLock fileLock = new ReentrantReadWriteLock();
-    //protected final ReadWriteLock lock = new ReentrantReadWriteLock();
-    //protected final IndexLock indexes = new IndexLock();
+    private final Object saveLock = new Object();
+    private CompletableFuture<Void> pendingSave; //guarded by saveLock
+    private volatile long saveDelay = DEFAULT_SAVE_DELAY;
+    private final Lock writeLock = new ReentrantLock();
     /** The {@link File} location of this {@link FileDataType} */
     protected final File location;
-    private final Object root; //can be a list or map, but what about null for empty data?
+    private volatile Object root; //can be a list or map, but what about null for empty data?
+    /** The root last written to (or read from) {@link #location} */
+    private volatile Object saved;
+    /** The root last made durable by the change log, while one is enabled */
+    private volatile Object synced;
+    private volatile ChangeLog log;
+    /** Serialized copies of unchanged mapping nodes, keyed by identity */
+    private final Map<Object, Object> serialized = new MapMaker().weakKeys().makeMap();
+    /** Published nodes which can only change by publishing a new root, keyed by identity */
+    private final Map<Object, Object> settled = new MapMaker().weakKeys().makeMap();
+    /** Read-only views of published nodes, keyed by identity, see {@link #view(Object)} */
+    private final Map<Object, Object> views = new MapMaker().weakKeys().weakValues().makeMap();
+    /** Objects built from raw nodes in lazy mode, keyed by identity, otherwise {@code null} */
+    private final Map<Object, Object> materialized;
 
     protected FileDataType(File location) {
+        this(location, false);
+    }
+
+    /**
+     * Loads the passed file. In lazy mode, the parsed tree is kept as it was
+     * read, and {@link FileSerializable} objects are only constructed when
+     * they are first retrieved (and then reused for further retrievals),
+     * rather than deserializing the whole tree upfront
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param location The location of the file to load
+     * @param lazy {@code true} to deserialize values on demand
+     */
+    protected FileDataType(File location, boolean lazy) {
         this.location = location;
+        this.materialized = lazy ? new MapMaker().weakKeys().makeMap() : null;
         Object root = null; //left as null for integrity safety (fails and won't overwrite a file to empty)
+        IOException failure = null;
         try {
             if (this.location == null) {
                 root = this.newMapping();
@@ -89,21 +165,34 @@ public abstract class FileDataType implements DataType {
             }
         } catch (IOException ex) {
             Debugger.error(ex, "Error loading %s file '%s'", this.getClass().getSimpleName(), location.getPath());
+            failure = ex;
         }
-        if (root instanceof Map) {
-            this.root = this.deserializeMap((Map<String, Object>) root);
-        } else if (root instanceof Collection) {
-            this.root = this.deserializeArray(root);
-        } else {
-            throw new IllegalArgumentException("Cannot have a literal as the root value");
+        if (failure != null) {
+            throw new IllegalArgumentException("Unable to read file '" + location.getPath() + "'", failure);
+        }
+        this.root = this.prepare(root);
+        if (this.location != null) {
+            this.saved = this.root;
         }
     }
 
     protected FileDataType(String data) {
         this.location = null;
+        this.materialized = null;
         this.root = this.parse(data);
     }
 
+    private Object prepare(Object raw) {
+        if (this.materialized != null && (raw instanceof Map || raw instanceof Collection)) {
+            return raw;
+        } else if (raw instanceof Map) {
+            return this.deserializeMap((Map<String, Object>) raw);
+        } else if (raw instanceof Collection) {
+            return this.deserializeArray(raw);
+        }
+        throw new IllegalArgumentException("Cannot have a literal as the root value");
+    }
+
     /**
      * Sets the value at the location specified by the passed path
      *
@@ -117,27 +206,227 @@ public abstract class FileDataType implements DataType {
         if (this.isSeries()) {
             throw new UnsupportedOperationException("Cannot set mapping values on a series");
         }
-        String[] ladder = FileDataType.getLadder(path);
-        //Reflections.operateLock(this.lock.readLock(), () -> {
-            Map<String, Object> data = this.traverse(true, ladder);
-            //Reflections.operateLock(this.indexes.write(path), () -> {
-                if (value != null) {
-                    data.put(ladder[ladder.length - 1], DEBUG_SERIALIZATION ? this.parseSerializable(value) : value);
-                } else {
-                    data.remove(ladder[ladder.length - 1]);
-                    //this.indexes.remove(path);
+        this.set(FileDataType.getLadder(path), value);
+    }
+
+    private void set(String[] ladder, Object value) {
+        Object put = value != null && DEBUG_SERIALIZATION ? this.parseSerializable(value) : value;
+        ChangeLog log = this.log;
+        if (log == null) {
+            Parallel.operateLock(this.writeLock, () -> {
+                Map<String, Object> root = (Map<String, Object>) this.getRoot();
+                Exceptions.illegalState(root != null, "File failed to load, aborting operation");
+                this.root = this.copyPath(root, ladder, 0, put);
+            });
+            return;
+        }
+        boolean compact;
+        try {
+            byte[] record = this.encode(ladder, put);
+            this.writeLock.lock();
+            try {
+                //logged under the writer lock, so the log order matches the tree
+                Map<String, Object> next = this.copyPath((Map<String, Object>) this.getRoot(), ladder, 0, put);
+                compact = this.log == log && log.append(record); //unless disabled in the meantime
+                this.root = next;
+            } finally {
+                this.writeLock.unlock();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to log change to " + String.join(".", ladder), ex);
+        }
+        this.saveAsync(); //batches the fsync of the log
+        if (compact) {
+            try {
+                SAVER.execute(this::compactLogged);
+            } catch (RejectedExecutionException ex) {
+                this.compactLogged();
+            }
+        }
+    }
+
+    private byte[] encode(String[] ladder, Object value) throws IOException {
+        Map<String, Object> record = this.newMapping();
+        record.put("path", String.join(".", ladder));
+        if (value != null) {
+            record.put("value", this.parseSerializable(value)); //absent for removals
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        this.write(record, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Switches this {@link FileDataType} to log-structured persistence.
+     * Changes already in the sidecar log (the file name with {@code .log}
+     * appended) are replayed first. From then on, each {@link #set} appends
+     * only the change to the log, {@link #save()} syncs the log rather than
+     * rewriting the file, and syncs for changes made within the save delay
+     * are batched together. Once the log grows past the threshold, it is
+     * compacted into the file in the background
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param threshold The size of the log, in bytes, at which to compact it
+     * @throws IOException If the log could not be replayed or opened
+     * @see #compact()
+     */
+    public void enableChangeLog(long threshold) throws IOException {
+        Validate.notNull(this.location, "Cannot log changes without a file location");
+        Validate.isTrue(threshold > 0, "Compaction threshold must be positive");
+        Validate.isTrue(!this.isSeries(), "Cannot log changes to a series");
+        Path file = this.location.getAbsoluteFile().toPath();
+        ChangeLog log = new ChangeLog(file.resolveSibling(file.getFileName() + ".log"), threshold);
+        this.fileLock.writeLock().lock();
+        this.writeLock.lock();
+        try {
+            Validate.validState(this.log == null, "Change log is already enabled");
+            log.open(record -> {
+                Map<String, Object> change = (Map<String, Object>) this.read(record);
+                Object value = this.parseDeserializable(change.get("value"));
+                String[] ladder = FileDataType.getLadder((String) change.get("path"));
+                this.root = this.copyPath((Map<String, Object>) this.getRoot(), ladder, 0, value);
+            });
+            this.synced = this.root;
+            this.log = log;
+        } finally {
+            this.writeLock.unlock();
+            this.fileLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the file with the data in memory. If a change log is enabled,
+     * the changes it holds are then discarded from it
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @throws IOException If the file could not be written
+     * @see #enableChangeLog(long)
+     */
+    public void compact() throws IOException {
+        this.fileLock.writeLock().lock();
+        try {
+            ChangeLog log = this.log;
+            if (log == null) {
+                this.save();
+                return;
+            }
+            Object snapshot;
+            try {
+                this.writeLock.lock();
+                try {
+                    log.rotate(); //later changes go to the new log
+                    snapshot = this.getRoot();
+                } finally {
+                    this.writeLock.unlock();
+                }
+                this.writeFile(snapshot, this.location);
+            } catch (IOException | RuntimeException ex) {
+                log.compacted(false);
+                throw ex;
+            }
+            this.saved = snapshot;
+            this.synced = snapshot;
+            log.compacted(true);
+        } finally {
+            this.fileLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Switches this {@link FileDataType} back to rewriting the file on each
+     * save. The log is compacted into the file first, after which it is
+     * closed and its files are deleted
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @throws IOException If the file could not be written, in which case
+     *                     the log stays enabled
+     * @see #enableChangeLog(long)
+     */
+    public void disableChangeLog() throws IOException {
+        this.fileLock.writeLock().lock();
+        try {
+            ChangeLog log = this.log;
+            if (log == null) {
+                return;
+            }
+            this.compact();
+            Parallel.operateLock(this.writeLock, () -> {
+                this.log = null; //changes set since the compaction are saved as usual
+            });
+            log.discard();
+        } finally {
+            this.fileLock.writeLock().unlock();
+        }
+    }
+
+    private void compactLogged() {
+        try {
+            this.compact();
+        } catch (IOException | RuntimeException ex) {
+            Debugger.error(ex, "Error compacting change log of %s file '%s'", this.getClass().getSimpleName(), this.location.getPath());
+        }
+    }
+
+    /**
+     * Returns a copy of {@code node} with the value at the remainder of the
+     * ladder replaced. Only the mappings along the path are copied, all other
+     * nodes are shared with the original tree
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param node The mapping to copy
+     * @param ladder The path being set
+     * @param index The index within the ladder of the key in {@code node}
+     * @param value The value to set, or {@code null} to remove the key
+     * @return The copied mapping, or {@code node} itself if nothing changed
+     */
+    private Map<String, Object> copyPath(Map<String, Object> node, String[] ladder, int index, Object value) {
+        String key = ladder[index];
+        Object child;
+        if (index == ladder.length - 1) {
+            if (value == null && !node.containsKey(key)) {
+                return node;
+            }
+            child = value;
+        } else {
+            Object old = node.get(key);
+            if (!(old instanceof Map)) {
+                if (value == null) {
+                    return node; //nothing to remove
                 }
-            //});
-        //});
+                old = this.newMapping();
+            }
+            child = this.copyPath((Map<String, Object>) old, ladder, index + 1, value);
+            if (child == old) {
+                return node;
+            }
+        }
+        Map<String, Object> back = this.newMapping();
+        back.putAll(node);
+        if (child == null) {
+            back.remove(key);
+        } else {
+            back.put(key, child);
+        }
+        return back;
     }
 
     public void setSeries(Collection<Object> value) {
         if (!this.isSeries()) {
             throw new UnsupportedOperationException("Cannot set a series value on a mapping");
         }
-        Collection<Object> all = (Collection<Object>) this.root;
-        all.clear();
+        Collection<Object> all = this.newSeries();
         all.addAll(value);
+        Parallel.operateLock(this.writeLock, () -> {
+            this.root = all;
+        });
     }
 
     /**
@@ -154,10 +443,8 @@ public abstract class FileDataType implements DataType {
             throw new UnsupportedOperationException("Cannot set mapping values on a series");
         }
         String[] ladder = FileDataType.getLadder(path);
-        //return Reflections.operateLock(this.lock.readLock(), () -> {
-            Map<String, Object> data = this.getContainer(ladder);
-            return data.containsKey(ladder[ladder.length - 1]);//Reflections.operateLock(this.indexes.read(path), () -> data.containsKey(ladder[ladder.length - 1]));
-        //});
+        Map<String, Object> data = this.getContainer(this.getRoot(), ladder);
+        return data != null && data.containsKey(ladder[ladder.length - 1]);
     }
 
     /**
@@ -188,10 +475,11 @@ public abstract class FileDataType implements DataType {
 
     /**
      * Gets the object at the specified path, or returns the passed "default"
-     * value if nothing is found
+     * value if nothing is found. Mappings and series are returned as
+     * read-only views
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.3.3
      *
      * @param path The path to set, delimited by '{@code .}'
      * @param def The default value to return upon not finding a value
@@ -201,16 +489,75 @@ public abstract class FileDataType implements DataType {
         if (this.isSeries()) {
             throw new UnsupportedOperationException("Cannot retrieve key values from a series");
         }
-        if (!this.isSet(path)) {
+        String[] ladder = FileDataType.getLadder(path);
+        return this.get(this.getContainer(this.getRoot(), ladder), ladder[ladder.length - 1], def);
+    }
+
+    private Object get(Map<String, Object> data, String key, Object def) {
+        if (data == null) {
             return def;
         }
-        String[] ladder = FileDataType.getLadder(path);
-        //Object back = Reflections.operateLock(this.lock.readLock(), () -> {
-            Map<String, Object> data = this.getContainer(ladder);
-            //return Reflections.operateLock(this.indexes.read(path), () -> data.get(ladder[ladder.length - 1]));
-            Object back = data.get(ladder[ladder.length - 1]);
-        //});
-        return this.parseDeserializable(back);
+        Object back = data.get(key);
+        if (back == null && !data.containsKey(key)) {
+            return def;
+        }
+        return this.view(back);
+    }
+
+    /**
+     * Returns a published value as it is handed out by the getters. Mapping
+     * and series nodes are wrapped in read-only views, which are remembered
+     * per node so that repeated reads do not allocate, and which can never be
+     * used to modify the published tree. Serialized objects are deserialized.
+     * {@link FileSerializable} objects are the one exception to the
+     * copy-on-write tree: they are live objects held by the tree, and any
+     * change made to them is written out with the next save
+     *
+     * @param value The published value
+     * @return The value to hand out
+     */
+    private Object view(Object value) {
+        if (value == null) {
+            return null;
+        } else if (value.getClass().isArray()) {
+            return this.parseDeserializable(value);
+        } else if (!(value instanceof Collection || value instanceof Map)) {
+            return value;
+        } else if (value instanceof Map && ((Map<?, ?>) value).containsKey(FileSerializable.IDENTIFIER_KEY)) {
+            return this.parseDeserializable(value);
+        }
+        Object back = this.views.get(value);
+        if (back == null) {
+            if (value instanceof Map) {
+                back = new MappingView((Map<String, Object>) value);
+            } else if (value instanceof List) {
+                back = new ListView((List<Object>) value);
+            } else {
+                back = new SeriesView((Collection<Object>) value);
+            }
+            Object race = this.views.putIfAbsent(value, back);
+            back = race == null ? back : race;
+        }
+        return back;
+    }
+
+    /**
+     * Compiles a path for repeated use. The returned {@link CompiledPath}
+     * splits the path once, and remembers the container it resolves to until
+     * this {@link FileDataType} is next written to, so that repeated reads of
+     * an unchanged tree cost a single map lookup
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param path The path to compile, delimited by '{@code .}'
+     * @return A {@link CompiledPath} bound to this {@link FileDataType}
+     */
+    public CompiledPath path(String path) {
+        if (this.isSeries()) {
+            throw new UnsupportedOperationException("Cannot retrieve key values from a series");
+        }
+        return new CompiledPath(path);
     }
 
     public boolean isSeries() {
@@ -230,98 +577,393 @@ public abstract class FileDataType implements DataType {
     }
 
     /**
-     * Saves any information in memory to the file specified.
+     * Saves any information in memory to the file specified. The file is
+     * written to a temporary file first and then moved over the target, so
+     * that a failed save never leaves a partially written file behind. Saving
+     * to the loaded file is skipped if nothing was set since the last save,
+     * unless the tree holds {@link FileSerializable} objects, which may have
+     * been changed in place
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.3.3
      *
      * @param target The file to save to
      * @throws IOException Any read/write locks or permission errors on the file
      */
     public void save(File target) throws IOException {
         Validate.notNull(target, "Cannot save to a null file");
-        Runnable r = () -> {
-            boolean lock = false;//target.equals(this.location);
-            if (lock) {
-                this.fileLock.writeLock().lock();
+        boolean own = target.equals(this.location);
+        ChangeLog log = this.log;
+        if (own && log != null) {
+            Object snapshot = this.getRoot();
+            if (this.isSettled(snapshot)) {
+                log.sync(); //the changes are already written to the log, up to the snapshot
+                this.synced = snapshot;
+            } else {
+                this.compact(); //objects changed in place are not in the log
+            }
+            return;
+        }
+        this.fileLock.writeLock().lock();
+        try {
+            //snapshot under the lock, so an older tree never overwrites a newer one
+            Object snapshot = this.getRoot();
+            if (own && snapshot == this.saved && this.isSettled(snapshot)) {
+                return;
+            }
+            this.writeFile(snapshot, target);
+            if (own) {
+                this.saved = snapshot;
+            }
+        } finally {
+            this.fileLock.writeLock().unlock();
+        }
+    }
+
+    private void writeFile(Object snapshot, File target) throws IOException {
+        Object out = this.serializationCopy(snapshot);
+        Path dest = target.getAbsoluteFile().toPath();
+        Path temp = Files.createTempFile(dest.getParent(), dest.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                this.write(out, Channels.newOutputStream(channel));
+                channel.force(true);
             }
             try {
-                System.out.println("Writing to file...");
-                this.writeRaw(target); //TODO: Use #write
-            } finally {
-                if (lock) {
-                    this.fileLock.writeLock().unlock();
-                }
+                Files.move(temp, dest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, dest, StandardCopyOption.REPLACE_EXISTING);
             }
-        };
-        r.run();
-        if (true) {
+            FileDataType.syncDirectory(dest.getParent());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Schedules a save to the file this was loaded from. Calls made before
+     * the scheduled save starts are coalesced into it, and it writes the data
+     * as it is at the time it runs. Pending saves are also flushed when the
+     * JVM shuts down
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return A future completed once the file has been written and synced
+     *         to the disk, or exceptionally if the save failed
+     */
+    public CompletableFuture<Void> saveAsync() {
+        Validate.notNull(this.location, "Cannot save a FileDataType without a file location");
+        CompletableFuture<Void> back;
+        synchronized (this.saveLock) {
+            if (this.pendingSave != null) {
+                return this.pendingSave;
+            }
+            back = new CompletableFuture<>();
+            this.pendingSave = back;
+        }
+        PENDING.add(this);
+        try {
+            SAVER.schedule(() -> this.runSave(back), this.saveDelay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            this.runSave(back);
+        }
+        return back;
+    }
+
+    /**
+     * Immediately performs any save scheduled by {@link #saveAsync()} on the
+     * calling thread, completing its future
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @throws IOException If the file could not be saved
+     */
+    public void flush() throws IOException {
+        CompletableFuture<Void> pending;
+        synchronized (this.saveLock) {
+            pending = this.pendingSave;
+            this.pendingSave = null;
+        }
+        if (pending == null) {
             return;
         }
-        if (SAVER.isShutdown() || SAVER.isTerminated()) {
-            r.run();
-        } else {
-            SAVER.submit(r);
+        PENDING.remove(this);
+        try {
+            this.save();
+            pending.complete(null);
+        } catch (IOException | RuntimeException ex) {
+            pending.completeExceptionally(ex);
+            throw ex;
         }
     }
 
-    @Override
-    public String toString() {
-        return this.toString(this.getRoot());
+    /**
+     * Sets how long {@link #saveAsync()} waits before writing, during which
+     * further calls are coalesced into the same write
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param delay The delay before writing
+     * @param unit The {@link TimeUnit} of the delay
+     */
+    public void setSaveDelay(long delay, TimeUnit unit) {
+        Validate.isTrue(delay >= 0, "Save delay cannot be negative");
+        this.saveDelay = unit.toMillis(delay);
     }
 
-    private void writeRaw(File target) {
-        System.out.println("getting copy");
-        Object out = this.serializationCopy(); //for now this is outside so a deadlock won't wipe a file
-        System.out.println("writing to file");
-        try (FileWriter fw = new FileWriter(target)) {
-            System.out.println("new: " + out);
-            fw.write(this.toString(out));
-            System.out.println("written and flushing now...");
-            fw.flush();
-        } catch (IOException e) {
-            System.err.println("Error saving file to target");
-            e.printStackTrace();
-        } catch (Exception ex) {
-            System.out.println("asdkjagsdh");
-            ex.printStackTrace(System.err);
+    private void runSave(CompletableFuture<Void> save) {
+        synchronized (this.saveLock) {
+            if (this.pendingSave != save) {
+                return; //already flushed
+            }
+            this.pendingSave = null;
         }
+        PENDING.remove(this);
+        try {
+            this.save();
+            save.complete(null);
+        } catch (IOException | RuntimeException ex) {
+            Debugger.error(ex, "Error saving %s file '%s'", this.getClass().getSimpleName(), this.location.getPath());
+            save.completeExceptionally(ex);
+        }
+    }
+
+    private static void flushAll() {
+        PENDING.forEach(data -> {
+            try {
+                data.flush();
+            } catch (IOException | RuntimeException ex) {
+                Debugger.error(ex, "Error saving %s file '%s' on shutdown", data.getClass().getSimpleName(), data.location.getPath());
+            }
+        });
     }
 
-    //TODO: Automatically determine spacing, how to read a key in a section (to determine position)
-    private void write(File target, Map<String, Object> out) {
-        //TODO: Make this work
-        if (true) {
-            this.writeRaw(target);
-            throw new UnsupportedOperationException("Incremental File saving not complete yet");
+    private static void syncDirectory(Path dir) {
+        //makes the rename durable, not supported on every platform
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
         }
+    }
+
+    /**
+     * Writes the data in memory to the passed file in the format of another
+     * {@link FileDataType}, replacing any content of that file
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param <T> The type of {@link FileDataType} to convert to
+     * @param type The class of the {@link FileDataType} to convert to
+     * @param target The file to write the converted data to
+     * @return The new {@link FileDataType}, backed by {@code target}
+     * @throws IOException If the target file could not be written
+     */
+    public <T extends FileDataType> T convertTo(Class<T> type, File target) throws IOException {
+        Validate.notNull(target, "Cannot convert to a null file");
+        Files.write(target.toPath(), new byte[0]);
+        T back = FileDataType.newInstance(type, target);
+        Exceptions.illegalState(back != null, "Unable to create a " + type.getSimpleName() + " for the converted data");
+        FileDataType data = back;
+        Object out = this.serializationCopy(this.getRoot());
+        if (out instanceof Map) {
+            data.root = data.deserializeMap((Map<String, Object>) out);
+        } else {
+            Collection<Object> series = data.newSeries();
+            series.addAll((Collection<Object>) out);
+            data.root = series;
+        }
+        data.save();
+        return back;
+    }
+
+    /**
+     * Reparses the file this was loaded from, and if it was changed since it
+     * was last loaded or saved, atomically replaces the data in memory with
+     * it. Readers are never blocked, and see either the old or the new data.
+     * Values set since the last save are discarded when the file changed,
+     * including those held by an enabled change log
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The paths (delimited by '{@code .}') whose values were changed,
+     *         added or removed, or an empty {@link Set} if the file was not
+     *         changed. A changed series is reported as the empty path
+     * @throws IOException If the file could not be read
+     */
+    public Set<String> reload() throws IOException {
+        Validate.notNull(this.location, "Cannot reload a FileDataType without a file location");
+        this.fileLock.writeLock().lock(); //no saves while comparing against the saved tree
         try {
-            if (!target.exists()) {
-                try (BufferedWriter wr = Files.newBufferedWriter(target.toPath(), StandardOpenOption.CREATE_NEW)) {
-                    wr.write(this.toString(out));
+            Object raw = this.readRaw();
+            if (FileDataType.sameValue(this.serializationCopy(this.saved), raw)) {
+                return Collections.emptySet(); //most likely our own save
+            }
+            Object fresh = this.prepare(raw);
+            Set<String> back = new LinkedHashSet<>();
+            this.writeLock.lock();
+            try {
+                FileDataType.diff("", this.serializationCopy(this.getRoot()), raw, back);
+                ChangeLog log = this.log;
+                if (log != null) {
+                    log.reset(); //its records were made against the replaced file
                 }
-                return;
+                this.root = fresh;
+            } finally {
+                this.writeLock.unlock();
+            }
+            this.saved = fresh;
+            this.synced = fresh;
+            return Collections.unmodifiableSet(back);
+        } finally {
+            this.fileLock.writeLock().unlock();
+        }
+    }
+
+    private static void diff(String path, Object old, Object now, Set<String> out) {
+        if (old instanceof Map && now instanceof Map) {
+            Map<String, Object> o = (Map<String, Object>) old;
+            Map<String, Object> n = (Map<String, Object>) now;
+            String prefix = path.isEmpty() ? "" : path + ".";
+            o.forEach((k, v) -> {
+                if (!n.containsKey(k)) {
+                    out.add(prefix + k);
+                } else {
+                    FileDataType.diff(prefix + k, v, n.get(k), out);
+                }
+            });
+            n.keySet().stream().filter(k -> !o.containsKey(k)).forEach(k -> out.add(prefix + k));
+        } else if (!FileDataType.sameValue(old, now)) {
+            out.add(path);
+        }
+    }
+
+    //compares serialized values, where numbers may have been read back as a different type
+    private static boolean sameValue(Object old, Object now) {
+        if (old == now) {
+            return true;
+        } else if (old == null || now == null) {
+            return false;
+        } else if (old instanceof Map && now instanceof Map) {
+            Map<?, ?> o = (Map<?, ?>) old;
+            Map<?, ?> n = (Map<?, ?>) now;
+            return o.size() == n.size() && o.entrySet().stream()
+                    .allMatch(e -> n.containsKey(e.getKey()) && FileDataType.sameValue(e.getValue(), n.get(e.getKey())));
+        } else if (old instanceof Collection && now instanceof Collection) {
+            Collection<?> o = (Collection<?>) old;
+            Collection<?> n = (Collection<?>) now;
+            if (o.size() != n.size()) {
+                return false;
+            }
+            Iterator<?> itr = n.iterator();
+            return o.stream().allMatch(v -> FileDataType.sameValue(v, itr.next()));
+        } else if (old instanceof Number && now instanceof Number) {
+            return old.toString().equals(now.toString());
+        }
+        return old.equals(now);
+    }
+
+    /**
+     * Returns whether or not this {@link FileDataType} has been changed since
+     * it was last loaded or saved to its file. With a change log enabled, a
+     * change counts as saved once the log was synced by {@link #save()}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return {@code true} if {@link #save()} would write to the file, or
+     *         sync its change log
+     */
+    public boolean isDirty() {
+        Object root = this.getRoot();
+        Object stored = this.log == null ? this.saved : this.synced;
+        return root != stored || !this.isSettled(root);
+    }
+
+    /**
+     * Returns whether a published value can only change by publishing a new
+     * root. This is not the case for anything holding {@link FileSerializable}
+     * (or other non-data) objects, which can be changed in place, nor for
+     * serialized objects of a lazily loaded tree, which may be built into
+     * such an object at any time. Nodes found to be settled are remembered
+     *
+     * @param value The published value
+     * @return {@code true} if the value holds only plain data
+     */
+    private boolean isSettled(Object value) {
+        if (FileDataType.isPlain(value)) {
+            return true;
+        } else if (value instanceof Map) {
+            if (this.materialized != null && ((Map<?, ?>) value).containsKey(FileSerializable.IDENTIFIER_KEY)) {
+                return false;
             }
-            //this will probably throw a CCE with the wrong file, but this method shouldn't be invoked anyhow
-            Map<String, Object> read = (Map<String, Object>) this.readRaw(target);
-            Map<String, Object> toSet = Reflections.difference(read, out);
-            StringBuilder output = new StringBuilder();
-            int level = 0;
-            int spaces = -1;
-            try (BufferedReader br = Files.newBufferedReader(target.toPath())) {
-                String line = br.readLine();
-                int counted = line.indexOf(" ");
-                if (counted > 0) {
-                    if (spaces < 0) {
-                        spaces = counted;
-                    } else if (counted % spaces != 0) {
-                        System.out.println("Mismatched spacing provided!");
+            if (!this.settled.containsKey(value)) {
+                for (Object v : ((Map<?, ?>) value).values()) {
+                    if (!this.isSettled(v)) {
+                        return false;
                     }
                 }
+                this.settled.put(value, Boolean.TRUE);
             }
-        } catch(IOException ex) {
-            Debugger.error(ex, "Error saving %s file '%s'", this.getClass().getSimpleName(), target.getPath());
+            return true;
+        } else if (value instanceof Collection) {
+            if (!this.settled.containsKey(value)) {
+                for (Object v : (Collection<?>) value) {
+                    if (!this.isSettled(v)) {
+                        return false;
+                    }
+                }
+                this.settled.put(value, Boolean.TRUE);
+            }
+            return true;
+        } else if (value instanceof Object[]) {
+            return Arrays.stream((Object[]) value).allMatch(this::isSettled);
         }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return this.toString(this.getRoot());
+    }
+
+    /**
+     * Writes an already serialized section of this {@link FileDataType} to
+     * the passed stream. Implementations which are able to stream their
+     * output should override this, rather than building the whole file in
+     * memory as the default implementation does via {@link #toString(Object)}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param section The serialized section to write
+     * @param out The {@link OutputStream} to write to, which is closed by
+     *            the caller
+     * @throws IOException If the section could not be written
+     */
+    protected void write(Object section, OutputStream out) throws IOException {
+        Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        w.write(this.toString(section));
+        w.flush();
+    }
+
+    /**
+     * Decodes a section written by {@link #write(Object, OutputStream)}.
+     * Implementations which do not write UTF-8 text should override this
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param buffer The encoded section
+     * @return The parsed section
+     * @throws IOException If the buffer could not be decoded or parsed
+     */
+    public Object read(ByteBuffer buffer) throws IOException {
+        return this.parse(StandardCharsets.UTF_8.newDecoder().decode(buffer));
     }
 
     /**
@@ -353,6 +995,40 @@ public abstract class FileDataType implements DataType {
         return null;
     }
 
+    /**
+     * Returns a new instance of a {@link FileDataType} based on the passed
+     * class instance, which deserializes its values on demand
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param <T> Represents the type that implements {@link FileDataType}
+     * @param clazz The class object to be used for a new instance
+     * @param location The location of the file to parse and use
+     * @param lazy {@code true} to deserialize values on demand
+     * @return The new instance of the requested {@link FileDataType}
+     * @see FileDataType#FileDataType(File, boolean)
+     */
+    public static <T extends FileDataType> T newInstance(Class<T> clazz, File location, boolean lazy) {
+        if (!lazy) {
+            return FileDataType.newInstance(clazz, location);
+        }
+        try {
+            Constructor<T> r = clazz.getDeclaredConstructor(File.class, boolean.class);
+            r.setAccessible(true);
+            return r.newInstance(location, true);
+        } catch (NoSuchMethodException ex) {
+            Logging.simple().error(ex, "No lazy File constructor found in FileDataType '%s'", clazz.getName());
+        } catch (SecurityException
+                | InstantiationException
+                | IllegalAccessException
+                | IllegalArgumentException
+                | InvocationTargetException ex) {
+            Debugger.error(ex, "Error parsing data file");
+        }
+        return null;
+    }
+
     public static <T extends FileDataType> T newInstance(Class<T> clazz, String data) {
         try {
             Constructor<T> r = clazz.getDeclaredConstructor(String.class);
@@ -377,15 +1053,19 @@ public abstract class FileDataType implements DataType {
         if (o instanceof Map) {
             return this.serializeMap((Map<String, Object>) o);
         } else if (o instanceof FileSerializable) {
-            return this.serializeMap(((FileSerializable) o).getData());
+            Map<String, Object> coded = CodecRegistry.serialize(o); //registered codecs take precedence
+            return this.serializeMap(coded == null ? ((FileSerializable) o).getData() : coded);
         } else if (o.getClass().isArray()) {
             return this.serializeArray(o);
         } else if (o instanceof Collection) {
             return this.serializeArray(((Collection) o).toArray());
         } else if (o instanceof Enum<?>) {
             return ((Enum<?>) o).name();
-        } else {
+        } else if (o instanceof String || o instanceof Number || o instanceof Boolean) {
             return o;
+        } else {
+            Map<String, Object> coded = CodecRegistry.serialize(o);
+            return coded == null ? o : this.serializeMap(coded);
         }
     }
 
@@ -393,6 +1073,10 @@ public abstract class FileDataType implements DataType {
         if (o == null) {
             return null;
         } else if (o instanceof Map) {
+            if (this.materialized != null && ((Map<?, ?>) o).containsKey(FileSerializable.IDENTIFIER_KEY)) {
+                //built once per raw node, so that changes to the object are saved
+                return this.materialized.computeIfAbsent(o, k -> this.deserializeMap((Map<String, Object>) k));
+            }
             return this.deserializeMap((Map<String, Object>) o);
         } else if (o.getClass().isArray() || o instanceof List) {
             return this.deserializeArray(o);
@@ -404,55 +1088,141 @@ public abstract class FileDataType implements DataType {
 
     public abstract Object parse(String in);
 
+    /**
+     * Parses the passed text. Implementations able to read a
+     * {@link CharSequence} (or the array behind a {@link CharBuffer}) in place
+     * should override this, as the default implementation reads it through a
+     * {@link Reader}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param in The text to parse
+     * @return The parsed root value
+     * @throws IOException If the text could not be parsed
+     */
+    public Object parse(CharSequence in) throws IOException {
+        return this.parse(FileDataType.reader(in));
+    }
+
+    /**
+     * Returns a {@link Reader} over the passed {@link CharSequence}, without
+     * copying it
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param in The {@link CharSequence} to read
+     * @return A {@link Reader} over {@code in}
+     */
+    protected static Reader reader(CharSequence in) {
+        return new SequenceReader(in);
+    }
+
     final Object serializationCopy() {
-        //System.out.println("lock#write: " + this.lock.writeLock().tryLock());
-        return this.serializationCopy(this.getRoot());//Reflections.operateLock(this.lock.writeLock(), () -> this.serializationCopy(this.getRoot()));
+        //the published root is never modified, so reading it is a consistent snapshot
+        return this.serializationCopy(this.getRoot());
     }
 
+    /**
+     * Returns a copy of the passed node which is ready to be written out.
+     * Mapping nodes holding only plain data are remembered by identity, and
+     * as written nodes are never modified, only the nodes changed since the
+     * last save are serialized again
+     *
+     * @since 0.1.0
+     * @version 0.3.3
+     *
+     * @param original The node to copy
+     * @return The serialized copy
+     */
     protected final Object serializationCopy(Object original) {
-        System.out.println("Starting serialization copy");
         if (original instanceof Map) {
+            Object memo = this.serialized.get(original);
+            if (memo != null) {
+                return memo;
+            }
             Map<String, Object> back = this.newMapping();
-            back.putAll((Map<String, Object>) original);
-            back.replaceAll((k, v) -> this.parseSerializable(v));
-            System.out.println("returning: " + back);
+            boolean plain = true;
+            for (Map.Entry<String, Object> ent : ((Map<String, Object>) original).entrySet()) {
+                Object v = ent.getValue();
+                Object built = this.materialized == null || v == null ? null : this.materialized.get(v);
+                if (built != null) {
+                    back.put(ent.getKey(), this.parseSerializable(built));
+                    plain = false;
+                } else if (v instanceof Map) {
+                    back.put(ent.getKey(), this.serializationCopy(v));
+                    //a lazy serialized object may be built and changed after this copy
+                    plain &= this.serialized.containsKey(v)
+                            && (this.materialized == null || !((Map<?, ?>) v).containsKey(FileSerializable.IDENTIFIER_KEY));
+                } else if (v instanceof Collection && this.materialized != null) {
+                    back.put(ent.getKey(), this.serializeArray(this.built((Collection<?>) v)));
+                    plain &= FileDataType.isPlain(v);
+                } else {
+                    back.put(ent.getKey(), this.parseSerializable(v));
+                    plain &= FileDataType.isPlain(v);
+                }
+            }
+            if (plain) {
+                this.serialized.put(original, back);
+            }
             return back;
         } else if (original instanceof Collection) {
             Collection<Object> orig = (Collection<Object>) original;
-            List<Object> back = new ArrayList<>(orig.size());
-            back.addAll(orig);
-            back.replaceAll(this::parseSerializable);
-            orig = this.newSeries();
-            orig.addAll(back);
-            return orig;
+            Collection<Object> back = this.newSeries();
+            if (this.materialized != null) {
+                orig = Arrays.asList(this.built(orig));
+            }
+            orig.forEach(o -> back.add(this.parseSerializable(o)));
+            return back;
         } else {
             throw new IllegalArgumentException("Cannot copy a literal value");
         }
     }
 
-    protected final Object deserializeMap(Map<String, Object> data) {
-        data.replaceAll((k, v) -> this.parseDeserializable(v));
+    //the elements of a lazy series, with the objects already built from them
+    private Object[] built(Collection<?> series) {
+        Object[] back = series.toArray();
+        for (int i = 0; i < back.length; i++) {
+            Object built = back[i] == null ? null : this.materialized.get(back[i]);
+            if (built != null) {
+                back[i] = built;
+            }
+        }
+        return back;
+    }
+
+    //whether a value serializes to itself (or to a copy of immutable values)
+    private static boolean isPlain(Object value) {
+        if (value == null
+                || value instanceof String
+                || value instanceof Number
+                || value instanceof Boolean
+                || value instanceof Character
+                || value instanceof Enum) {
+            return true;
+        } else if (value instanceof Collection) {
+            return ((Collection<?>) value).stream().allMatch(FileDataType::isPlain);
+        } else if (value instanceof Object[]) {
+            return Arrays.stream((Object[]) value).allMatch(FileDataType::isPlain);
+        }
+        return false;
+    }
+
+    protected final Object deserializeMap(Map<String, Object> original) {
+        //copied, as the passed mapping may be part of the published tree
+        Map<String, Object> data = this.newMapping();
+        original.forEach((k, v) -> data.put(k, this.parseDeserializable(v)));
         Object ident = data.get(FileSerializable.IDENTIFIER_KEY);
-        if (ident != null && ident instanceof String) {
-            try {
-                Class<?> base = Class.forName((String) ident);
-                if (!FileSerializable.class.isAssignableFrom(base)) {
-                    Debugger.error(new IllegalArgumentException("Cannot deserialize a non FileSerializable"), "Listed class does not implement FileSerializable");
-                    return data;
-                }
-                Constructor<?> baseCon = base.getDeclaredConstructor(Map.class);
-                Type[] types = baseCon.getGenericParameterTypes();
-                if (types.length == 1 && types[0].getTypeName().equals("java.util.Map<java.lang.String, java.lang.Object>")) {
-                    baseCon.setAccessible(true);
-                    data.remove(FileSerializable.IDENTIFIER_KEY);
-                    return baseCon.newInstance(data);
+        if (ident instanceof String) {
+            CodecRegistry.Codec<?> codec = CodecRegistry.get((String) ident);
+            if (codec != null) {
+                data.remove(FileSerializable.IDENTIFIER_KEY);
+                try {
+                    return codec.deserialize(data);
+                } catch (RuntimeException e) {
+                    Debugger.error(e, "Error while instantiating '%s'", ident);
                 }
-            } catch (ClassNotFoundException e) {
-                Debugger.error(e, "Attempted to deserialize nonexistant class: '%s'", ident);
-            } catch (NoSuchMethodException e) {
-                Debugger.error(e, "%s is missing a Map<String, Object> constructor", ident);
-            } catch (InvocationTargetException | InstantiationException | IllegalAccessException e) {
-                Debugger.error(e, "Error while instantiating '%s'", ident);
             }
         }
         return data;
@@ -487,13 +1257,53 @@ public abstract class FileDataType implements DataType {
      * @throws IOException If the file could not be read
      */
     protected Object readRaw(File target) throws IOException {
-        if (FileUtils.readFileToString(target).trim().isEmpty()) {
+        CharBuffer text;
+        try (FileChannel channel = FileChannel.open(target.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                try (Reader reader = Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1)) {
+                    Object o = this.parse(reader);
+                    return o == null ? this.newMapping() : o;
+                }
+            }
+            text = StandardCharsets.UTF_8.newDecoder().decode(FileDataType.readFully(channel));
+        }
+        int i = text.position();
+        while (i < text.limit() && Character.isWhitespace(text.get(i))) {
+            i++;
+        }
+        if (i >= text.limit()) {
             return this.newMapping();
         }
-        Object o = this.parse(Files.newBufferedReader(target.toPath()));
+        Object o = this.parse(text);
         return o == null ? this.newMapping() : o;
     }
 
+    /**
+     * Reads the whole content of a file. Large files are memory mapped, all
+     * others are read into a heap buffer: a mapping is only released once
+     * collected, and on Windows the mapped file cannot be replaced until
+     * then, which fails the atomic move of a following save
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param channel The open channel of the file, of at most
+     *                {@link Integer#MAX_VALUE} bytes
+     * @return A buffer holding the content of the file
+     * @throws IOException If the file could not be read
+     */
+    protected static ByteBuffer readFully(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size >= MAP_THRESHOLD) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        ByteBuffer back = ByteBuffer.allocate((int) size);
+        while (back.hasRemaining() && channel.read(back) >= 0);
+        ((Buffer) back).flip();
+        return back;
+    }
+
     protected abstract Object serializeMap(Map<String, Object> toFileFormat);
 
     protected abstract Object serializeArray(Object array);
@@ -523,6 +1333,9 @@ public abstract class FileDataType implements DataType {
                 return Yaml.class;
             case "xml":
                 return XML.class;
+            case "bin":
+            case "binary":
+                return Binary.class;
         }
         return null;
     }
@@ -537,67 +1350,62 @@ public abstract class FileDataType implements DataType {
      * @return The split path
      */
     private static String[] getLadder(String path) {
-        return path.split("\\.");
+        int end = path.length();
+        while (end > 0 && path.charAt(end - 1) == '.') {
+            end--; //trailing empty elements are dropped, as with String#split
+        }
+        int count = 1;
+        for (int i = 0; i < end; i++) {
+            if (path.charAt(i) == '.') {
+                count++;
+            }
+        }
+        String[] back = new String[count];
+        int start = 0;
+        for (int i = 0; i < count - 1; i++) {
+            int dot = path.indexOf('.', start);
+            back[i] = path.substring(start, dot);
+            start = dot + 1;
+        }
+        back[count - 1] = path.substring(start, end);
+        return back;
     }
 
     /**
-     * Traverses a {@link Map} tree from the internal root node. Will
-     * return a {@link Map} container of the relevant element at the end
-     * of the search, or just an empty {@link Map} if nothing exists.
+     * Gets the {@link Map} above the requested object specified by the
+     * supplied {@code ladder} parameter.
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.3.3
      *
-     * @param makePath Whether to fill empty space with {@link JSONObject}s
-     * @param ladder A String array depicting the location to search in
-     * @return A {@link JSONObject} containing the last node in the ladder
+     * @param root The root node to traverse from
+     * @param ladder A string array, already split in order of levels to
+     *               traverse
+     * @return The {@link Map} above the requested object, or {@code null} if
+     *         it does not exist
      */
-    //not thread safe, wrap calls with proper index locks
-    private Map<String, Object> traverse(boolean makePath, String... ladder) {
-        if (this.isSeries()) {
+    private Map<String, Object> getContainer(Object root, String... ladder) {
+        if (root instanceof Collection) {
             throw new UnsupportedOperationException("Cannot traverse mapping values in a series");
         }
-        Map<String, Object> container = (Map<String, Object>) this.getRoot();
-        if (ladder.length == 1 && ladder[0].isEmpty()) {
-            //return root
-            return container;
-        }
+        Map<String, Object> container = (Map<String, Object>) root;
         Exceptions.illegalState(container != null, "File failed to load, aborting operation");
         for (int i = 0; i < ladder.length - 1; i++) {
-            if (!container.containsKey(ladder[i]) && makePath) {
-                container.put(ladder[i], this.newMapping());
-            }
-            Map<String, Object> temp = (Map<String, Object>) container.get(ladder[i]);
-            if (temp == null) {
-                //purposefully set as null
-                break;
-            } else {
-                container = temp;
+            Object next = container.get(ladder[i]);
+            if (!(next instanceof Map)) {
+                return null;
             }
+            container = (Map<String, Object>) next;
         }
         return container;
     }
 
     /**
-     * Gets the {@link JSONObject} above the requested object specified by the
-     * supplied {@code ladder} parameter.
-     *
-     * @since 0.1.0
-     * @version 0.1.0
-     *
-     * @param ladder A string array, already split in order of levels to
-     * traverse
-     * @return The {@link JSONObject} above the requested object
-     */
-    private Map<String, Object> getContainer(String... ladder) {
-        return this.traverse(false, ladder);
-    }
-
-    /**
-     * The root node of this {@link FileDataType}
+     * The root node of this {@link FileDataType}. This is a snapshot of the
+     * tree at the time of the call, and must not be modified
      *
      * @since 0.3.2
-     * @version 0.3.2
+     * @version 0.3.3
      * @deprecated Public as convenience, may not be exposed when more proper api comes around (key iteration)
      *
      * @return The root {@link Map} that represents this {@link FileDataType}
@@ -608,51 +1416,270 @@ public abstract class FileDataType implements DataType {
 
     protected abstract String toString(Object section);
 
-    //TODO: make this work
-    private static class IndexLock {
+    /**
+     * A pre-split path into a {@link FileDataType}, obtained via
+     * {@link FileDataType#path(String)}. The container of the final key is
+     * cached against the root it was resolved from, and is resolved again
+     * only once a write has published a new root
+     *
+     * @since 0.3.3
+     * @author 1Rogue
+     * @version 0.3.3
+     */
+    public final class CompiledPath {
+
+        private final String path;
+        private final String[] ladder;
+        private final String key;
+        private volatile Resolved resolved;
+
+        private CompiledPath(String path) {
+            this.path = path;
+            this.ladder = FileDataType.getLadder(path);
+            this.key = this.ladder[this.ladder.length - 1];
+        }
+
+        /**
+         * Gets the object at this path
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @return The object found in memory at this location, or
+         *         {@code null} if nothing is found
+         * @see FileDataType#get(String)
+         */
+        public Object get() {
+            return this.get(null);
+        }
+
+        /**
+         * Gets the object at this path, or returns the passed "default" value
+         * if nothing is found
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @param def The default value to return upon not finding a value
+         * @return The relevant object, or the default if no value is found
+         * @see FileDataType#get(String, Object)
+         */
+        public Object get(Object def) {
+            return FileDataType.this.get(this.container(), this.key, def);
+        }
 
-        private final Map<String, ReadWriteLock> locks = new HashMap<>();
-        private final Map<String, IndexLock> indexes = new HashMap<>();
+        /**
+         * Returns whether or not there is an object located at this path
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @return {@code true} if a value is found, {@code false} otherwise
+         * @see FileDataType#isSet(String)
+         */
+        public boolean isSet() {
+            Map<String, Object> data = this.container();
+            return data != null && data.containsKey(this.key);
+        }
 
-        public Lock write(String path) {
-            if (true) {
-                return this.getWrite(path.toLowerCase());
+        /**
+         * Sets the value at this path
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @param value The value to set
+         * @see FileDataType#set(String, Object)
+         */
+        public void set(Object value) {
+            FileDataType.this.set(this.ladder, value);
+        }
+
+        /**
+         * Returns the path this object was compiled from
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @return The path, delimited by '{@code .}'
+         */
+        public String getPath() {
+            return this.path;
+        }
+
+        private Map<String, Object> container() {
+            Object root = FileDataType.this.getRoot();
+            Resolved res = this.resolved;
+            if (res == null || res.root != root) {
+                res = new Resolved(root, FileDataType.this.getContainer(root, this.ladder));
+                this.resolved = res;
             }
-            String[] ladder = FileDataType.getLadder(path.toLowerCase());
-            return this.locks.computeIfAbsent(path.toLowerCase(), k -> new ReentrantReadWriteLock()).writeLock();
+            return res.container;
+        }
+
+        @Override
+        public String toString() {
+            return this.path;
         }
 
-        public Lock read(String path) {
-            if (true) {
-                return this.getRead(path.toLowerCase());
+    }
+
+    private static final class SequenceReader extends Reader {
+
+        private final CharSequence in;
+        private int pos = 0;
+
+        private SequenceReader(CharSequence in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (this.pos >= this.in.length()) {
+                return -1;
             }
-            int dot = path.indexOf(".");
-            Lock curr = this.getRead(path.substring(0, dot));
-            if (dot < 0) {
-                //we're at the end
-                return curr;
-            } else if (curr.tryLock()) {
-                try {
-                    return this.read(path.substring(dot + 1));
-                } finally {
-                    curr.unlock();
-                }
+            int end = Math.min(this.in.length(), this.pos + len);
+            if (this.in instanceof String) {
+                ((String) this.in).getChars(this.pos, end, cbuf, off);
             } else {
+                for (int i = this.pos; i < end; i++) {
+                    cbuf[off++] = this.in.charAt(i);
+                }
+            }
+            int read = end - this.pos;
+            this.pos = end;
+            return read;
+        }
 
+        @Override
+        public int read() {
+            return this.pos < this.in.length() ? this.in.charAt(this.pos++) : -1;
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+    private final class MappingView extends AbstractMap<String, Object> {
+
+        private final Map<String, Object> node;
+        private final Set<Map.Entry<String, Object>> entries = new AbstractSet<Map.Entry<String, Object>>() {
+
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                Iterator<Map.Entry<String, Object>> itr = MappingView.this.node.entrySet().iterator();
+                return new Iterator<Map.Entry<String, Object>>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return itr.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, Object> next() {
+                        Map.Entry<String, Object> ent = itr.next();
+                        return new AbstractMap.SimpleImmutableEntry<>(ent.getKey(), FileDataType.this.view(ent.getValue()));
+                    }
+
+                };
             }
-            return null;
+
+            @Override
+            public int size() {
+                return MappingView.this.node.size();
+            }
+
+        };
+
+        private MappingView(Map<String, Object> node) {
+            this.node = node;
+        }
+
+        @Override
+        public Object get(Object key) {
+            return FileDataType.this.view(this.node.get(key));
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return this.node.containsKey(key);
         }
 
-        private Lock getRead(String key) {
-            return this.locks.computeIfAbsent(key.toLowerCase(), k -> new ReentrantReadWriteLock()).readLock();
+        @Override
+        public int size() {
+            return this.node.size();
         }
 
-        private Lock getWrite(String key) {
-            return this.locks.computeIfAbsent(key.toLowerCase(), k -> new ReentrantReadWriteLock()).writeLock();
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            return this.entries;
         }
 
-        public ReadWriteLock remove(String path) {
-            return this.locks.remove(path);
+    }
+
+    private final class ListView extends AbstractList<Object> implements RandomAccess {
+
+        private final List<Object> node;
+
+        private ListView(List<Object> node) {
+            this.node = node;
+        }
+
+        @Override
+        public Object get(int index) {
+            return FileDataType.this.view(this.node.get(index));
+        }
+
+        @Override
+        public int size() {
+            return this.node.size();
+        }
+
+    }
+
+    private final class SeriesView extends AbstractCollection<Object> {
+
+        private final Collection<Object> node;
+
+        private SeriesView(Collection<Object> node) {
+            this.node = node;
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            Iterator<Object> itr = this.node.iterator();
+            return new Iterator<Object>() {
+
+                @Override
+                public boolean hasNext() {
+                    return itr.hasNext();
+                }
+
+                @Override
+                public Object next() {
+                    return FileDataType.this.view(itr.next());
+                }
+
+            };
+        }
+
+        @Override
+        public int size() {
+            return this.node.size();
+        }
+
+    }
+
+    private static final class Resolved {
+
+        private final Object root;
+        private final Map<String, Object> container;
+
+        private Resolved(Object root, Map<String, Object> container) {
+            this.root = root;
+            this.container = container;
         }
 
     }
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.data;
+
+import com.codelanx.commons.logging.Debugger;
+import org.apache.commons.lang3.Validate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches the files of {@link FileDataType} instances, and reloads them when
+ * they are changed on disk. Bursts of events for a file are debounced into a
+ * single {@link FileDataType#reload()}, which runs on a background thread and
+ * swaps in the new data without blocking readers. Listeners are then passed
+ * the paths which were changed
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+public class FileDataWatcher implements Closeable {
+
+    /** The default time to wait for further changes before reloading, in milliseconds */
+    public static final long DEFAULT_DEBOUNCE = 100;
+    private final WatchService service;
+    private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+    private final Map<Path, Watched> files = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService reloader;
+    private final long debounce;
+
+    /**
+     * Creates a new watcher using the {@link #DEFAULT_DEBOUNCE}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @throws IOException If the file system could not be watched
+     */
+    public FileDataWatcher() throws IOException {
+        this(DEFAULT_DEBOUNCE, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new watcher
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param debounce How long to wait for further changes to a file before
+     *                 reloading it
+     * @param unit The {@link TimeUnit} of the debounce
+     * @throws IOException If the file system could not be watched
+     */
+    public FileDataWatcher(long debounce, TimeUnit unit) throws IOException {
+        Validate.isTrue(debounce >= 0, "Debounce cannot be negative");
+        this.debounce = unit.toMillis(debounce);
+        this.service = FileSystems.getDefault().newWatchService();
+        this.reloader = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "FileDataWatcher-Reloader");
+            t.setDaemon(true);
+            return t;
+        });
+        Thread poller = new Thread(this::poll, "FileDataWatcher");
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    /**
+     * Starts watching the file of a {@link FileDataType}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param data The {@link FileDataType} to reload when its file changes
+     * @throws IOException If the file's directory could not be watched
+     */
+    public void watch(FileDataType data) throws IOException {
+        this.watch(data, null);
+    }
+
+    /**
+     * Starts watching the file of a {@link FileDataType}, notifying the passed
+     * listener after each reload which changed any values. Watching the same
+     * {@link FileDataType} again adds another listener
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param data The {@link FileDataType} to reload when its file changes
+     * @param listener Called on the reloading thread with the changed paths,
+     *                 or {@code null} for none
+     * @throws IOException If the file's directory could not be watched
+     */
+    public synchronized void watch(FileDataType data, Consumer<? super Set<String>> listener) throws IOException {
+        Validate.notNull(data.location, "Cannot watch a FileDataType without a file location");
+        Path file = data.location.getAbsoluteFile().toPath();
+        Path dir = file.getParent();
+        if (!this.directories.containsValue(dir)) {
+            WatchKey key = dir.register(this.service,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            this.directories.put(key, dir);
+        }
+        Watched watched = this.files.computeIfAbsent(file, k -> new Watched(data));
+        Validate.isTrue(watched.data == data, "A different FileDataType is already watching " + file);
+        if (listener != null) {
+            watched.listeners.add(listener);
+        }
+    }
+
+    /**
+     * Stops watching the file of a {@link FileDataType}, removing its
+     * listeners
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param data The {@link FileDataType} to stop watching
+     */
+    public void unwatch(FileDataType data) {
+        Watched watched = this.files.remove(data.location.getAbsoluteFile().toPath());
+        if (watched != null) {
+            watched.cancel();
+        }
+    }
+
+    /**
+     * Stops watching all files, and stops the background threads
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @throws IOException If the underlying {@link WatchService} could not be
+     *                     closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.files.clear();
+        this.reloader.shutdownNow();
+        this.service.close();
+    }
+
+    private void poll() {
+        try {
+            while (true) {
+                WatchKey key = this.service.take();
+                Path dir = this.directories.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (dir == null) {
+                        continue;
+                    }
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        //events were lost, so check every file in the directory
+                        this.files.forEach((file, watched) -> {
+                            if (file.getParent().equals(dir)) {
+                                this.schedule(watched);
+                            }
+                        });
+                        continue;
+                    }
+                    Watched watched = this.files.get(dir.resolve((Path) event.context()));
+                    if (watched != null) {
+                        this.schedule(watched);
+                    }
+                }
+                if (!key.reset()) {
+                    this.directories.remove(key);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            //closed
+        }
+    }
+
+    private void schedule(Watched watched) {
+        synchronized (watched) {
+            watched.cancel();
+            if (!this.reloader.isShutdown()) {
+                watched.pending = this.reloader.schedule(() -> this.reload(watched), this.debounce, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void reload(Watched watched) {
+        Set<String> changed;
+        try {
+            changed = watched.data.reload();
+        } catch (IOException | RuntimeException ex) {
+            //most likely a partially written file, the next event retries
+            Debugger.error(ex, "Error reloading %s file '%s'", watched.data.getClass().getSimpleName(), watched.data.location.getPath());
+            return;
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        watched.listeners.forEach(l -> {
+            try {
+                l.accept(changed);
+            } catch (RuntimeException ex) {
+                Debugger.error(ex, "Error in reload listener for '%s'", watched.data.location.getPath());
+            }
+        });
+    }
+
+    private static final class Watched {
+
+        private final FileDataType data;
+        private final List<Consumer<? super Set<String>>> listeners = new CopyOnWriteArrayList<>();
+        private ScheduledFuture<?> pending; //guarded by this
+
+        private Watched(FileDataType data) {
+            this.data = data;
+        }
+
+        private synchronized void cancel() {
+            if (this.pending != null) {
+                this.pending.cancel(false);
+                this.pending = null;
+            }
+        }
+
+    }
+
+}
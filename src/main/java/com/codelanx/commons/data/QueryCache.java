@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.data;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.lang3.Validate;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetFactory;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * An opt-in, in-process cache of query results for an {@link SQLDataType}.
+ * Only queries which reference one of the {@link QueryCache#declare declared}
+ * tables are cached, keyed by their SQL and parameters. Any
+ * {@link SQLDataType#update update} or {@link SQLDataType#batchUpdate batch
+ * update} which references a declared table will invalidate all cached
+ * results which read from that table. Statements made through other means
+ * (such as {@link SQLDataType#operate} or the raw {@link java.sql.Connection})
+ * are not tracked, and require a manual call to
+ * {@link QueryCache#invalidateTable(String)}
+ * <br><br>
+ * This is meant for small lookup tables which are read far more often than
+ * they are written to, and results are fully materialized in memory
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+public class QueryCache {
+
+    private static final int MAX_REMEMBERED_STATEMENTS = 1024;
+    private final Cache<Key, CachedRowSet> results;
+    private final Map<String, Pattern> tables = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> statements = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final RowSetFactory factory;
+
+    /**
+     * Creates a new {@link QueryCache}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param ttl The time a result may be cached for after being stored
+     * @param unit The {@link TimeUnit} of the {@code ttl} parameter
+     * @param maxEntries The maximum amount of results to hold at once
+     * @throws IllegalStateException If no {@link RowSetFactory} is available
+     */
+    public QueryCache(long ttl, TimeUnit unit, long maxEntries) {
+        Validate.isTrue(ttl > 0, "Time-to-live must be positive");
+        Validate.isTrue(maxEntries > 0, "Must be able to cache at least one result");
+        this.results = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttl, unit)
+                .maximumSize(maxEntries)
+                .build();
+        try {
+            this.factory = RowSetProvider.newFactory();
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Unable to create a RowSetFactory for cached results", ex);
+        }
+    }
+
+    /**
+     * Declares tables whose queries will be cached
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param tables The names of the tables to cache
+     * @return This {@link QueryCache}, for chaining
+     */
+    public QueryCache declare(String... tables) {
+        for (String table : tables) {
+            Validate.notEmpty(table, "Cannot declare an empty table name");
+            this.tables.computeIfAbsent(table.toLowerCase(), k -> Pattern.compile("(?<![\\w$])" + Pattern.quote(k) + "(?![\\w$])", Pattern.CASE_INSENSITIVE));
+        }
+        this.statements.clear();
+        return this;
+    }
+
+    /**
+     * Removes all cached results which read from the passed table
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param table The name of the table which was changed
+     */
+    public void invalidateTable(String table) {
+        String name = table.toLowerCase();
+        this.generation.incrementAndGet();
+        this.results.asMap().keySet().removeIf(k -> k.tables.contains(name));
+    }
+
+    /**
+     * Removes all cached results which read from any declared table that the
+     * passed SQL statement references
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param sql The SQL statement which was executed
+     */
+    public void invalidate(String sql) {
+        this.getTables(sql).forEach(this::invalidateTable);
+    }
+
+    /**
+     * Removes every cached result
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     */
+    public void clear() {
+        this.generation.incrementAndGet();
+        this.results.invalidateAll();
+    }
+
+    /**
+     * Returns the amount of results currently held in memory
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The approximate amount of cached results
+     */
+    public long size() {
+        return this.results.size();
+    }
+
+    /**
+     * Returns the cache key for a query, or {@code null} if the query does not
+     * read from a declared table
+     *
+     * @param sql The SQL statement being queried
+     * @param params The parameters bound to the statement
+     * @return The relevant {@link Key}, or {@code null} if not cacheable
+     */
+    Key key(String sql, Object... params) {
+        Set<String> tables = this.getTables(sql);
+        return tables.isEmpty() ? null : new Key(sql, params, tables, this.generation.get());
+    }
+
+    /**
+     * Returns a fresh cursor over a cached result, or {@code null} if none is
+     * cached
+     *
+     * @param key The {@link Key} of the query
+     * @return A {@link ResultSet} positioned before the first row, or
+     *         {@code null}
+     * @throws SQLException If the cached result cannot be read
+     */
+    ResultSet get(Key key) throws SQLException {
+        CachedRowSet rows = this.results.getIfPresent(key);
+        return rows == null ? null : QueryCache.shared(rows);
+    }
+
+    /**
+     * Materializes and caches a fresh {@link ResultSet}, and closes it. The
+     * result is not cached if a relevant table was invalidated while the
+     * query was running
+     *
+     * @param key The {@link Key} of the query
+     * @param rs The result of the query
+     * @return A {@link ResultSet} over the materialized rows
+     * @throws SQLException If the result could not be read
+     */
+    ResultSet store(Key key, ResultSet rs) throws SQLException {
+        CachedRowSet rows = this.factory.createCachedRowSet();
+        try {
+            rows.populate(rs);
+        } finally {
+            rs.close();
+        }
+        if (this.generation.get() == key.generation) {
+            this.results.put(key, rows);
+        }
+        return QueryCache.shared(rows);
+    }
+
+    /**
+     * Notifies the cache of the relevant {@link SQLDataType} that a statement
+     * has written to the database. Within a transaction, this is deferred
+     * until the transaction commits
+     *
+     * @param type The {@link SQLDataType} the statement was executed on
+     * @param sql The SQL statement which was executed
+     */
+    static void written(SQLDataType type, String sql) {
+        if (type instanceof TxContext) {
+            ((TxContext) type).deferInvalidation(sql);
+            return;
+        }
+        QueryCache cache = type.getQueryCache();
+        if (cache != null) {
+            cache.invalidate(sql);
+        }
+    }
+
+    /**
+     * Returns whether the current thread has a transaction open on the passed
+     * {@link Connection}. Rows read within it may be uncommitted, and
+     * cached rows may not reflect its own writes
+     *
+     * @param con The {@link Connection} to check
+     * @return {@code true} if the current thread is within a transaction
+     * @throws SQLException If the auto-commit mode could not be read
+     */
+    static boolean inTransaction(Connection con) throws SQLException {
+        //statements hold the connection, see SQLDataType#inTransaction
+        return Thread.holdsLock(con) && !con.getAutoCommit();
+    }
+
+    /**
+     * Returns a new cursor over the passed rows. Closing a shared
+     * {@link CachedRowSet} clears the rows for every cursor, so the returned
+     * {@link ResultSet} ignores any call to {@link ResultSet#close()}
+     *
+     * @param rows The cached rows
+     * @return A new cursor positioned before the first row
+     * @throws SQLException If the cursor could not be created
+     */
+    private static ResultSet shared(CachedRowSet rows) throws SQLException {
+        return new DelegatingResultSet(rows.createShared()) {
+            @Override
+            public void close() {
+                //the rows stay cached for other cursors
+            }
+        };
+    }
+
+    private Set<String> getTables(String sql) {
+        Set<String> back = this.statements.get(sql);
+        if (back != null) {
+            return back;
+        }
+        Set<String> found = new HashSet<>();
+        this.tables.forEach((name, pattern) -> {
+            if (pattern.matcher(sql).find()) {
+                found.add(name);
+            }
+        });
+        back = found.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(found);
+        if (this.statements.size() < MAX_REMEMBERED_STATEMENTS) {
+            this.statements.put(sql, back);
+        }
+        return back;
+    }
+
+    static final class Key {
+
+        private final String sql;
+        private final Object[] params;
+        private final Set<String> tables;
+        private final long generation;
+        private final int hash;
+
+        private Key(String sql, Object[] params, Set<String> tables, long generation) {
+            this.sql = sql;
+            this.params = params;
+            this.tables = tables;
+            this.generation = generation;
+            this.hash = 31 * sql.hashCode() + Arrays.deepHashCode(params);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return this.hash == other.hash && this.sql.equals(other.sql) && Arrays.deepEquals(this.params, other.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+    }
+
+}
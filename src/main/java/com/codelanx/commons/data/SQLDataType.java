@@ -68,10 +68,11 @@ public interface SQLDataType extends DataType, AutoCloseable {
     /**
      * Executes a query, and applies the resulting {@link ResultSet} to the
      * passed {@link SQLFunction}. This method will return anything returned
-     * from the lambda body
+     * from the lambda body. If a {@link QueryCache} is in use and the query
+     * reads from a declared table, the result may be served from memory
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.3.3
      *
      * @param <R> The return type from the lambda body
      * @param oper The operation to apply to the {@link ResultSet}
@@ -80,25 +81,47 @@ public interface SQLDataType extends DataType, AutoCloseable {
      * @return The return value of the lambda
      */
     default public <R> SQLResponse<R> query(SQLFunction<? super ResultSet, R> oper, String sql, Object... params) {
+        SQLResponse<R> back = new SQLResponse<>();
+        SQLMetrics.Sample sample = SQLMetrics.start(this);
         PreparedStatement stmt = null;
-        R back = null;
+        QueryCache cache = this.getQueryCache();
+        QueryCache.Key key = cache == null ? null : cache.key(sql, params);
         try {
-            stmt = this.prepare(sql);
-            for (int i = 0; i < params.length; i++) {
-                stmt.setObject(i + 1, params[i]);
+            Connection con = this.getConnection();
+            //within a transaction of this thread, cached rows may not reflect its writes
+            ResultSet rs = key == null || QueryCache.inTransaction(con) ? null : cache.get(key);
+            if (rs == null) {
+                synchronized (con) {
+                    stmt = this.prepare(sql);
+                    for (int i = 0; i < params.length; i++) {
+                        stmt.setObject(i + 1, params[i]);
+                    }
+                    sample.prepared();
+                    rs = stmt.executeQuery();
+                    sample.executed();
+                    if (key != null && con.getAutoCommit()) {
+                        //uncommitted rows are never cached, they may still be rolled back
+                        rs = cache.store(key, rs);
+                    }
+                    back.setResponse(oper.apply(sample.count(rs)));
+                }
+            } else {
+                sample.prepared();
+                sample.executed();
+                back.setResponse(oper.apply(sample.count(rs)));
             }
-            ResultSet rs = stmt.executeQuery();
-            back = oper.apply(rs);
             Databases.close(rs);
         } catch (SQLException ex) {
+            TxContext.markFailed(this, ex);
             if (this.isSendingErrorOutput()) {
                 Debugger.error(ex, "Error in SQL operation: %s", Databases.simpleErrorOutput(ex));
             }
-            return new SQLResponse<>(ex);
+            back.setException(ex);
         } finally {
             Databases.close(stmt);
+            sample.finish(back, sql, params);
         }
-        return new SQLResponse<>(back);
+        return back;
     }
 
     /**
@@ -213,22 +236,29 @@ public interface SQLDataType extends DataType, AutoCloseable {
     @SuppressWarnings("rawtypes")
     default public SQLResponse<?> query(SQLConsumer<? super ResultSet> oper, String sql, Object... params) {
         SQLResponse resp = SQLResponse.EMPTY.clone();
+        SQLMetrics.Sample sample = SQLMetrics.start(this);
         PreparedStatement stmt = null;
         try {
-            stmt = this.prepare(sql);
-            for (int i = 0; i < params.length; i++) {
-                stmt.setObject(i + 1, params[i]);
+            synchronized (this.getConnection()) {
+                stmt = this.prepare(sql);
+                for (int i = 0; i < params.length; i++) {
+                    stmt.setObject(i + 1, params[i]);
+                }
+                sample.prepared();
+                ResultSet rs = stmt.executeQuery();
+                sample.executed();
+                oper.accept(sample.count(rs));
+                Databases.close(rs);
             }
-            ResultSet rs = stmt.executeQuery();
-            oper.accept(rs);
-            Databases.close(rs);
         } catch (SQLException ex) {
+            TxContext.markFailed(this, ex);
             if (this.isSendingErrorOutput()) {
                 Debugger.error(ex, "Error in SQL operation: %s", Databases.simpleErrorOutput(ex));
             }
             resp.setException(ex);
         } finally {
             Databases.close(stmt);
+            sample.finish(resp, sql, params);
         }
         return resp;
     }
@@ -246,22 +276,32 @@ public interface SQLDataType extends DataType, AutoCloseable {
     @SuppressWarnings("rawtypes")
     default public SQLResponse update(String query, Object... params) {
         SQLResponse resp = new SQLResponse();
+        SQLMetrics.Sample sample = SQLMetrics.start(this);
         PreparedStatement stmt = null;
         int back = 0;
         try {
-            stmt = this.prepare(query);
-            for (int i = 0; i < params.length; i++) {
-                stmt.setObject(i + 1, params[i]);
+            synchronized (this.getConnection()) {
+                stmt = this.prepare(query);
+                for (int i = 0; i < params.length; i++) {
+                    stmt.setObject(i + 1, params[i]);
+                }
+                sample.prepared();
+                back = stmt.executeUpdate();
+                sample.executed();
+                sample.updated(back);
+                QueryCache.written(this, query);
             }
-            back = stmt.executeUpdate();
         } catch (SQLException ex) {
+            TxContext.markFailed(this, ex);
             if (this.isSendingErrorOutput()) {
                 Debugger.error(ex, "Error in SQL operation: %s", Databases.simpleErrorOutput(ex));
             }
+            resp.setException(ex);
         } finally {
             Databases.close(stmt);
+            resp.setUpdatedRows(back);
+            sample.finish(resp, query, params);
         }
-        resp.setUpdatedRows(back);
         return resp;
     }
 
@@ -283,9 +323,13 @@ public interface SQLDataType extends DataType, AutoCloseable {
      * map each object so that "Parameter 1" would be the result of
      * {@code SomeObject#getName}, and parameter 2 would be the result of
      * {@code SomeObject#getID}, and so on
+     * <br><br>
+     * Each batch is committed as it is executed, and a failing batch is
+     * rolled back. If called within {@link SQLDataType#inTransaction}, the
+     * batches are instead committed or rolled back with the transaction
      * 
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.3.3
      * 
      * @param <T> The type of the objects being batch committed
      * @param query The SQL query to execute
@@ -295,35 +339,193 @@ public interface SQLDataType extends DataType, AutoCloseable {
      * @return An int of the total rows affected for all operations
      */
     default public <T> int batchUpdate(String query, int batchSize, Collection<T> params, Function<T, ?>... paramMappers) {
-        PreparedStatement stmt = null;
-        int back = 0;
-        try {
-            stmt = this.prepare(query);
-            this.setAutoCommit(false);
-            Iterator<T> itr = params.iterator();
-            for (int i = 1; itr.hasNext(); i++) {
-                T val = itr.next();
-                for (int w = 0; w < paramMappers.length; w++) {
-                    stmt.setObject(w + 1, paramMappers[w].apply(val));
+        Connection con = this.getConnection();
+        if (con == null) {
+            return 0;
+        }
+        synchronized (con) {
+            SQLMetrics.Sample sample = SQLMetrics.start(this);
+            PreparedStatement stmt = null;
+            int back = 0;
+            boolean autoCommit = true;
+            try {
+                autoCommit = con.getAutoCommit();
+                stmt = this.prepare(query);
+                con.setAutoCommit(false);
+                sample.prepared();
+                Iterator<T> itr = params.iterator();
+                for (int i = 1; itr.hasNext(); i++) {
+                    T val = itr.next();
+                    for (int w = 0; w < paramMappers.length; w++) {
+                        stmt.setObject(w + 1, paramMappers[w].apply(val));
+                    }
+                    stmt.addBatch();
+                    if (i >= batchSize) {
+                        back += IntStream.of(stmt.executeBatch()).reduce(0, Integer::sum);
+                        if (autoCommit) {
+                            con.commit();
+                        }
+                        i = 0;
+                    }
+                }
+                back += IntStream.of(stmt.executeBatch()).reduce(0, Integer::sum);
+                if (autoCommit) {
+                    con.commit();
                 }
-                stmt.addBatch();
-                if (i >= batchSize) {
-                    back += IntStream.of(stmt.executeBatch()).reduce(0, Integer::sum);
-                    this.commit();
-                    i = 1;
+                sample.executed();
+                QueryCache.written(this, query);
+            } catch (SQLException ex) {
+                if (autoCommit) {
+                    //only roll back our own uncommitted batch, an outer transaction handles itself
+                    Databases.rollback(con);
+                }
+                sample.failed();
+                TxContext.markFailed(this, ex);
+                if (this.isSendingErrorOutput()) {
+                    Debugger.error(ex, "Error in SQL operation: %s", Databases.simpleErrorOutput(ex));
                 }
+            } finally {
+                Databases.close(stmt);
+                if (autoCommit) {
+                    try {
+                        con.setAutoCommit(true);
+                    } catch (SQLException ex) {
+                        Debugger.error(ex, "Error restoring auto-commit after batch update");
+                    }
+                }
+                sample.updated(back);
+                sample.finish(null, query, null);
             }
-            back += IntStream.of(stmt.executeBatch()).reduce(0, Integer::sum);
-            this.commit();
-            this.setAutoCommit(true);
-        } catch (SQLException ex) {
-            if (this.isSendingErrorOutput()) {
-                Debugger.error(ex, "Error in SQL operation: %s", Databases.simpleErrorOutput(ex));
+            return back;
+        }
+    }
+
+    /**
+     * Runs the passed {@link SQLFunction} as a single transaction on this
+     * {@link SQLDataType}, retrying it up to {@link TxContext#DEFAULT_RETRIES}
+     * times should it fail due to a deadlock or serialization failure. The
+     * connection's current isolation level is kept
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param <R> The return type from the lambda body
+     * @param oper The operations to make within the transaction
+     * @see SQLDataType#inTransaction(int, int, SQLFunction)
+     * @return The return value of the lambda, or the exception that caused the
+     *         transaction to be rolled back
+     */
+    default public <R> SQLResponse<R> inTransaction(SQLFunction<? super TxContext, R> oper) {
+        return this.inTransaction(-1, TxContext.DEFAULT_RETRIES, oper);
+    }
+
+    /**
+     * Runs the passed {@link SQLFunction} as a single transaction on this
+     * {@link SQLDataType} using the given isolation level, retrying it up to
+     * {@link TxContext#DEFAULT_RETRIES} times should it fail due to a deadlock
+     * or serialization failure
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param <R> The return type from the lambda body
+     * @param isolation One of the {@link Connection} {@code TRANSACTION_*}
+     *                  constants
+     * @param oper The operations to make within the transaction
+     * @see SQLDataType#inTransaction(int, int, SQLFunction)
+     * @return The return value of the lambda, or the exception that caused the
+     *         transaction to be rolled back
+     */
+    default public <R> SQLResponse<R> inTransaction(int isolation, SQLFunction<? super TxContext, R> oper) {
+        return this.inTransaction(isolation, TxContext.DEFAULT_RETRIES, oper);
+    }
+
+    /**
+     * Runs the passed {@link SQLFunction} as a single transaction. The
+     * connection is pinned to the transaction for its duration, so that
+     * statements made on this {@link SQLDataType} from other threads wait for
+     * it rather than interleaving with it. If any operation within the transaction
+     * fails, or the lambda throws, all changes are rolled back. Failures due
+     * to deadlocks, lock wait timeouts or a busy database (as determined by
+     * {@link Databases#isRetryable(SQLException)}) will re-run the entire
+     * lambda after a randomized, exponentially growing delay, during which the
+     * connection is released
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param <R> The return type from the lambda body
+     * @param isolation One of the {@link Connection} {@code TRANSACTION_*}
+     *                  constants, or a negative number to keep the current
+     *                  isolation level of the connection
+     * @param retries The maximum amount of times to retry the transaction
+     * @param oper The operations to make within the transaction. This may be
+     *             invoked multiple times, and should not have side-effects
+     *             outside of the database
+     * @return The return value of the lambda, or the exception that caused the
+     *         transaction to be rolled back
+     */
+    default public <R> SQLResponse<R> inTransaction(int isolation, int retries, SQLFunction<? super TxContext, R> oper) {
+        Connection con = this.getConnection();
+        if (con == null) {
+            return new SQLResponse<>(new SQLException("No connection is open for this " + this.getClass().getSimpleName()));
+        }
+        for (int attempt = 0;; attempt++) {
+            SQLException failure;
+            synchronized (con) {
+                boolean autoCommit;
+                int previous;
+                try {
+                    autoCommit = con.getAutoCommit();
+                    previous = con.getTransactionIsolation();
+                    if (isolation >= 0 && isolation != previous) {
+                        con.setTransactionIsolation(isolation);
+                    }
+                    con.setAutoCommit(false);
+                } catch (SQLException ex) {
+                    if (this.isSendingErrorOutput()) {
+                        Debugger.error(ex, "Error starting SQL transaction: %s", Databases.simpleErrorOutput(ex));
+                    }
+                    return new SQLResponse<>(ex);
+                }
+                TxContext tx = new TxContext(this, con, attempt);
+                try {
+                    try {
+                        R back = oper.apply(tx);
+                        failure = tx.getFailure();
+                        if (failure == null) {
+                            con.commit();
+                            tx.finished();
+                            return new SQLResponse<>(back);
+                        }
+                    } catch (SQLException ex) {
+                        failure = ex;
+                    } catch (RuntimeException ex) {
+                        Databases.rollback(con);
+                        tx.finished();
+                        throw ex;
+                    }
+                    Databases.rollback(con);
+                    tx.finished();
+                } finally {
+                    try {
+                        if (isolation >= 0 && isolation != previous) {
+                            con.setTransactionIsolation(previous);
+                        }
+                        con.setAutoCommit(autoCommit);
+                    } catch (SQLException ex) {
+                        Debugger.error(ex, "Error restoring connection state after transaction: %s", Databases.simpleErrorOutput(ex));
+                    }
+                }
+            }
+            //the connection is released while waiting, so other users are not stalled
+            if (attempt >= retries || !Databases.isRetryable(failure) || !TxContext.backoff(attempt)) {
+                if (this.isSendingErrorOutput()) {
+                    Debugger.error(failure, "SQL transaction rolled back after %d attempt(s): %s", attempt + 1, Databases.simpleErrorOutput(failure));
+                }
+                return new SQLResponse<>(failure);
             }
-        } finally {
-            Databases.close(stmt);
         }
-        return back;
     }
 
     /**
@@ -423,14 +625,20 @@ public interface SQLDataType extends DataType, AutoCloseable {
      */
     default public <R> SQLResponse<R> operate(SQLFunction<? super PreparedStatement, R> oper, String sql, Object... params) {
         SQLResponse<R> back = new SQLResponse<>();
+        SQLMetrics.Sample sample = SQLMetrics.start(this);
         PreparedStatement stmt = null;
         try {
-            stmt = this.prepare(sql);
-            for (int i = 0; i < params.length; i++) {
-                stmt.setObject(i + 1, params[i]);
+            synchronized (this.getConnection()) {
+                stmt = this.prepare(sql);
+                for (int i = 0; i < params.length; i++) {
+                    stmt.setObject(i + 1, params[i]);
+                }
+                sample.prepared();
+                back.setResponse(oper.apply(stmt));
+                sample.executed();
             }
-            back.setResponse(oper.apply(stmt));
         } catch (SQLException ex) {
+            TxContext.markFailed(this, ex);
             if (this.isSendingErrorOutput()) {
                 Debugger.error(ex, "Error in SQL operation: %s", Databases.simpleErrorOutput(ex));
             }
@@ -439,10 +647,40 @@ public interface SQLDataType extends DataType, AutoCloseable {
             if (stmt != null) {
                 Databases.close(stmt);
             }
+            sample.finish(back, sql, params);
         }
         return back;
     }
 
+    /**
+     * Returns the {@link QueryCache} used to hold the results of queries made
+     * through {@link SQLDataType#query(SQLFunction, String, Object...)}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The relevant {@link QueryCache}, or {@code null} if results are
+     *         not cached
+     */
+    default public QueryCache getQueryCache() {
+        return null;
+    }
+
+    /**
+     * Returns the {@link SQLMetrics} which statements executed through this
+     * {@link SQLDataType} are recorded to. Regardless of this, the timing of
+     * each statement is available through its {@link SQLResponse}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The relevant {@link SQLMetrics}, or {@code null} if statements
+     *         are not being recorded
+     */
+    default public SQLMetrics getMetrics() {
+        return null;
+    }
+
     /**
      * Returns the {@link Connection} object for ease of use in exposing more
      * internal API
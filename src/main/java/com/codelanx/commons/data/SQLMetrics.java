@@ -0,0 +1,430 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.data;
+
+import com.codelanx.commons.logging.Logging;
+import com.codelanx.commons.util.Histogram;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+
+/**
+ * Aggregates timing information about statements executed through an
+ * {@link SQLDataType}. Statements are grouped by their normalized SQL text
+ * (literals and whitespace collapsed), and each group tracks the time spent
+ * preparing, executing and fetching results in a {@link Histogram}, alongside
+ * the amount of rows returned and updated. Statements which take longer than
+ * the {@link SQLMetrics#setSlowQueryThreshold slow query threshold} are
+ * logged, with their parameter values masked
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+public class SQLMetrics {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w$.])-?\\d+(?:\\.\\d+)?(?![\\w$])");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MAX_REMEMBERED_STATEMENTS = 1024;
+    private final Map<String, String> normalized = new ConcurrentHashMap<>();
+    private final Map<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private volatile long slowThresholdNanos = -1;
+
+    /**
+     * Sets the amount of time after which a statement is logged as slow
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param threshold The threshold time, or a negative number to disable
+     *                  the slow query log
+     * @param unit The {@link TimeUnit} of the {@code threshold}
+     */
+    public void setSlowQueryThreshold(long threshold, TimeUnit unit) {
+        this.slowThresholdNanos = threshold < 0 ? -1 : unit.toNanos(threshold);
+    }
+
+    /**
+     * Returns the amount of time after which a statement is logged as slow
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param unit The {@link TimeUnit} to return the threshold in
+     * @return The threshold, or {@code -1} if the slow query log is disabled
+     */
+    public long getSlowQueryThreshold(TimeUnit unit) {
+        long nanos = this.slowThresholdNanos;
+        return nanos < 0 ? -1 : unit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the statistics of every statement recorded so far, keyed by
+     * their normalized SQL text
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return An unmodifiable view of the recorded statements
+     */
+    public Map<String, StatementStats> getStatements() {
+        return Collections.unmodifiableMap(this.statements);
+    }
+
+    /**
+     * Returns the statistics for a single statement
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param sql The SQL of the statement, which will be normalized
+     * @return The relevant {@link StatementStats}, or {@code null} if the
+     *         statement was never recorded
+     */
+    public StatementStats getStats(String sql) {
+        return this.statements.get(this.normalizeCached(sql));
+    }
+
+    /**
+     * Clears all recorded statistics
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     */
+    public void reset() {
+        this.statements.clear();
+    }
+
+    /**
+     * Normalizes an SQL statement, replacing string and numeric literals with
+     * {@code ?}, collapsing {@code IN} lists and any whitespace
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param sql The SQL to normalize
+     * @return The normalized SQL text
+     */
+    public static String normalize(String sql) {
+        String back = STRING_LITERAL.matcher(sql).replaceAll("?");
+        back = NUMBER_LITERAL.matcher(back).replaceAll("?");
+        back = IN_LIST.matcher(back).replaceAll("IN (...)");
+        return WHITESPACE.matcher(back).replaceAll(" ").trim();
+    }
+
+    private String normalizeCached(String sql) {
+        String back = this.normalized.get(sql);
+        if (back == null) {
+            back = SQLMetrics.normalize(sql);
+            if (this.normalized.size() < MAX_REMEMBERED_STATEMENTS) {
+                this.normalized.put(sql, back);
+            }
+        }
+        return back;
+    }
+
+    private void record(Sample sample, String sql, Object[] params) {
+        StatementStats stats = this.statements.computeIfAbsent(this.normalizeCached(sql), k -> new StatementStats());
+        stats.record(sample);
+        long threshold = this.slowThresholdNanos;
+        long total = sample.done - sample.start;
+        if (threshold >= 0 && total >= threshold) {
+            Logging.simple().print(Level.WARNING, "Slow SQL statement (%.3fms: prepare %.3fms, execute %.3fms, fetch %.3fms): %s %s",
+                    total / 1e6, sample.prepareNanos() / 1e6, sample.executeNanos() / 1e6, sample.fetchNanos() / 1e6,
+                    WHITESPACE.matcher(sql).replaceAll(" ").trim(), SQLMetrics.mask(params));
+        }
+    }
+
+    /**
+     * Describes statement parameters by type only, so that no values end up
+     * within the logs
+     *
+     * @param params The statement parameters
+     * @return A string such as {@code [String, Integer, null]}
+     */
+    private static String mask(Object[] params) {
+        if (params == null) {
+            return "";
+        }
+        StringJoiner back = new StringJoiner(", ", "[", "]");
+        for (Object o : params) {
+            back.add(o == null ? "null" : o.getClass().getSimpleName());
+        }
+        return back.toString();
+    }
+
+    /**
+     * Begins timing a statement for the relevant {@link SQLDataType}
+     *
+     * @param type The {@link SQLDataType} executing the statement
+     * @return A new {@link Sample}
+     */
+    static Sample start(SQLDataType type) {
+        return new Sample(type.getMetrics());
+    }
+
+    /**
+     * Aggregated statistics for a single normalized statement. All times are
+     * recorded in nanoseconds
+     *
+     * @since 0.3.3
+     * @author 1Rogue
+     * @version 0.3.3
+     */
+    public static final class StatementStats {
+
+        private final Histogram prepare = new Histogram();
+        private final Histogram execute = new Histogram();
+        private final Histogram fetch = new Histogram();
+        private final Histogram total = new Histogram();
+        private final LongAdder returned = new LongAdder();
+        private final LongAdder updated = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        private StatementStats() {
+        }
+
+        private void record(Sample sample) {
+            this.prepare.record(sample.prepareNanos());
+            this.execute.record(sample.executeNanos());
+            this.fetch.record(sample.fetchNanos());
+            this.total.record(sample.done - sample.start);
+            this.returned.add(sample.rows);
+            this.updated.add(sample.updated);
+            if (sample.failed) {
+                this.errors.increment();
+            }
+        }
+
+        /**
+         * Returns the amount of times this statement was executed
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @return The execution count
+         */
+        public long getCount() {
+            return this.total.getCount();
+        }
+
+        /**
+         * Returns the amount of times this statement failed
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @return The error count
+         */
+        public long getErrors() {
+            return this.errors.sum();
+        }
+
+        /**
+         * Returns the total amount of rows returned by this statement
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @return The amount of rows read by callers
+         */
+        public long getRowsReturned() {
+            return this.returned.sum();
+        }
+
+        /**
+         * Returns the total amount of rows updated by this statement
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @return The amount of rows updated
+         */
+        public long getRowsUpdated() {
+            return this.updated.sum();
+        }
+
+        /**
+         * Returns the time spent preparing the statement and binding its
+         * parameters
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @return The relevant {@link Histogram}
+         */
+        public Histogram getPrepareTimes() {
+            return this.prepare;
+        }
+
+        /**
+         * Returns the time spent executing the statement on the database
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @return The relevant {@link Histogram}
+         */
+        public Histogram getExecuteTimes() {
+            return this.execute;
+        }
+
+        /**
+         * Returns the time spent reading results of the statement
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @return The relevant {@link Histogram}
+         */
+        public Histogram getFetchTimes() {
+            return this.fetch;
+        }
+
+        /**
+         * Returns the total time taken by the statement
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @return The relevant {@link Histogram}
+         */
+        public Histogram getTotalTimes() {
+            return this.total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("errors=%d returned=%d updated=%d total[%s]",
+                    this.getErrors(), this.getRowsReturned(), this.getRowsUpdated(), this.total.summarize(TimeUnit.MILLISECONDS));
+        }
+
+    }
+
+    /**
+     * The timing of a single statement execution
+     */
+    static final class Sample {
+
+        private final SQLMetrics metrics;
+        private final long start = System.nanoTime();
+        private long prepared = -1;
+        private long executed = -1;
+        private long done;
+        private long rows;
+        private long updated;
+        private boolean failed;
+
+        private Sample(SQLMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        void prepared() {
+            this.prepared = System.nanoTime();
+        }
+
+        void executed() {
+            this.executed = System.nanoTime();
+        }
+
+        void updated(long rows) {
+            this.updated += rows;
+        }
+
+        void failed() {
+            this.failed = true;
+        }
+
+        /**
+         * Wraps a {@link ResultSet} to count the rows read from it, if metrics
+         * are being recorded
+         *
+         * @param rs The {@link ResultSet} to count
+         * @return The counting {@link ResultSet}, or the original if there
+         *         are no metrics to record to
+         */
+        ResultSet count(ResultSet rs) {
+            if (this.metrics == null) {
+                return rs;
+            }
+            return new DelegatingResultSet(rs) {
+                @Override
+                public boolean next() throws SQLException {
+                    boolean back = this.delegate.next();
+                    if (back) {
+                        Sample.this.rows++;
+                    }
+                    return back;
+                }
+            };
+        }
+
+        /**
+         * Completes this sample, setting the timing of the response and
+         * recording it to the relevant {@link SQLMetrics} if any
+         *
+         * @param resp The response to the statement, or {@code null}
+         * @param sql The SQL which was executed
+         * @param params The parameters bound to the statement
+         */
+        void finish(SQLResponse<?> resp, String sql, Object[] params) {
+            this.done = System.nanoTime();
+            if (this.prepared < 0) {
+                this.prepared = this.done;
+            }
+            if (this.executed < 0) {
+                this.executed = this.done;
+            }
+            if (resp != null) {
+                if (resp.getException() != null) {
+                    this.failed = true;
+                }
+                resp.setTiming(this.prepareNanos(), this.executeNanos(), this.fetchNanos());
+            }
+            if (this.metrics != null) {
+                this.metrics.record(this, sql, params);
+            }
+        }
+
+        private long prepareNanos() {
+            return this.prepared - this.start;
+        }
+
+        private long executeNanos() {
+            return this.executed - this.prepared;
+        }
+
+        private long fetchNanos() {
+            return this.done - this.executed;
+        }
+
+    }
+
+}
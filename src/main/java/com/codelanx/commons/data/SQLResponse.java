@@ -20,6 +20,7 @@
 package com.codelanx.commons.data;
 
 import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
@@ -29,7 +30,7 @@ import java.util.function.Consumer;
  *
  * @since 0.1.0
  * @author 1Rogue
- * @version 0.3.2
+ * @version 0.3.3
  * 
  * @param <T> The response content type
  */
@@ -39,6 +40,9 @@ public class SQLResponse<T> implements Cloneable {
     private SQLException ex;
     private T response;
     private int update;
+    private long prepareNanos;
+    private long executeNanos;
+    private long fetchNanos;
     
     public SQLResponse() {
 
@@ -75,6 +79,22 @@ public class SQLResponse<T> implements Cloneable {
         return this.update;
     }
 
+    public long getPrepareTime(TimeUnit unit) {
+        return unit.convert(this.prepareNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getExecuteTime(TimeUnit unit) {
+        return unit.convert(this.executeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getFetchTime(TimeUnit unit) {
+        return unit.convert(this.fetchNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getTotalTime(TimeUnit unit) {
+        return unit.convert(this.prepareNanos + this.executeNanos + this.fetchNanos, TimeUnit.NANOSECONDS);
+    }
+
     void setException(SQLException ex) {
         if (this == EMPTY) {
             throw new UnsupportedOperationException("Cannot call setters on public constant");
@@ -96,6 +116,15 @@ public class SQLResponse<T> implements Cloneable {
         this.update = update;
     }
 
+    void setTiming(long prepareNanos, long executeNanos, long fetchNanos) {
+        if (this == EMPTY) {
+            throw new UnsupportedOperationException("Cannot call setters on public constant");
+        }
+        this.prepareNanos = prepareNanos;
+        this.executeNanos = executeNanos;
+        this.fetchNanos = fetchNanos;
+    }
+
     @Override
     protected SQLResponse<T> clone() {
         try {
@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.data;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a single attempt at a transaction started via
+ * {@link SQLDataType#inTransaction(int, int, SQLFunction)}. All of the usual
+ * {@link SQLDataType} operations are available, and are bound to the pinned
+ * {@link Connection} of the transaction. Committing, rolling back and closing
+ * are handled by the owning {@link SQLDataType} and cannot be done here
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+public final class TxContext implements SQLDataType {
+
+    /** The amount of times a transaction is retried by default */
+    public static final int DEFAULT_RETRIES = 3;
+    private static final long BACKOFF_BASE_MS = 20;
+    private static final long BACKOFF_CAP_MS = 1000;
+    private final SQLDataType source;
+    private final Connection con;
+    private final int attempt;
+    private SQLException failure;
+    private List<String> written;
+
+    TxContext(SQLDataType source, Connection con, int attempt) {
+        this.source = source;
+        this.con = con;
+        this.attempt = attempt;
+    }
+
+    /**
+     * Returns which attempt at the transaction this is, starting at {@code 0}
+     * for the first try. Any value above {@code 0} means a previous attempt
+     * was rolled back due to a deadlock or serialization failure
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The number of previously failed attempts
+     */
+    public int getAttempt() {
+        return this.attempt;
+    }
+
+    /**
+     * Returns the {@link SQLDataType} this transaction was started from
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The owning {@link SQLDataType}
+     */
+    public SQLDataType getSource() {
+        return this.source;
+    }
+
+    /**
+     * Returns the first {@link SQLException} raised by an operation within
+     * this transaction, even if it was swallowed into an {@link SQLResponse}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The first failure, or {@code null} if nothing has failed
+     */
+    public SQLException getFailure() {
+        return this.failure;
+    }
+
+    /**
+     * Records a failed operation against the transaction it was made in, if
+     * any. Operations on a {@link TxContext} report their errors within an
+     * {@link SQLResponse}, so this allows the transaction to still roll back
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param type The {@link SQLDataType} the operation was made upon
+     * @param ex The {@link SQLException} which was thrown
+     */
+    static void markFailed(SQLDataType type, SQLException ex) {
+        if (type instanceof TxContext) {
+            TxContext tx = (TxContext) type;
+            if (tx.failure == null) {
+                tx.failure = ex;
+            }
+        }
+    }
+
+    /**
+     * Holds onto a write made within this transaction, so that the
+     * {@link QueryCache} of the source is invalidated once the transaction
+     * is committed or rolled back
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param sql The SQL statement which was executed
+     */
+    void deferInvalidation(String sql) {
+        if (this.written == null) {
+            this.written = new ArrayList<>();
+        }
+        this.written.add(sql);
+    }
+
+    /**
+     * Invalidates any cached results for writes made within this transaction,
+     * once it has been either committed or rolled back
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     */
+    void finished() {
+        if (this.written != null) {
+            this.written.forEach(sql -> QueryCache.written(this.source, sql));
+        }
+    }
+
+    /**
+     * Sleeps for a randomized, exponentially growing amount of time before a
+     * transaction is retried
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param attempt The attempt which just failed, starting at {@code 0}
+     * @return {@code false} if the thread was interrupted while waiting
+     */
+    static boolean backoff(int attempt) {
+        long ceiling = Math.min(BACKOFF_CAP_MS, BACKOFF_BASE_MS << Math.min(attempt, 16));
+        try {
+            TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public boolean checkTable(String tableName) {
+        return this.source.checkTable(tableName);
+    }
+
+    @Override
+    public boolean checkColumn(String tableName, String columnName) {
+        return this.source.checkColumn(tableName, columnName);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The {@link Connection} pinned for this transaction
+     */
+    @Override
+    public Connection getConnection() {
+        return this.con;
+    }
+
+    /**
+     * Runs the passed {@link SQLFunction} as part of this transaction, rather
+     * than starting a new one
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param <R> {@inheritDoc}
+     * @param isolation Ignored, the isolation of the outer transaction is used
+     * @param retries Ignored, the outer transaction handles retrying
+     * @param oper {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public <R> SQLResponse<R> inTransaction(int isolation, int retries, SQLFunction<? super TxContext, R> oper) {
+        try {
+            return new SQLResponse<>(oper.apply(this));
+        } catch (SQLException ex) {
+            TxContext.markFailed(this, ex);
+            return new SQLResponse<>(ex);
+        }
+    }
+
+    @Override
+    public SQLMetrics getMetrics() {
+        return this.source.getMetrics();
+    }
+
+    @Override
+    public void setAutoCommit(boolean set) {
+        throw new UnsupportedOperationException("Cannot change auto-commit within a transaction");
+    }
+
+    @Override
+    public void commit() {
+        throw new UnsupportedOperationException("Transactions are committed once the operation completes");
+    }
+
+    @Override
+    public void rollback() {
+        throw new UnsupportedOperationException("Throw an exception from the operation to roll back the transaction");
+    }
+
+    @Override
+    public void close() {
+        throw new UnsupportedOperationException("Cannot close a connection pinned to a transaction");
+    }
+
+    @Override
+    public void setErrorOutput(boolean errors) {
+        this.source.setErrorOutput(errors);
+    }
+
+    @Override
+    public boolean isSendingErrorOutput() {
+        return this.source.isSendingErrorOutput();
+    }
+
+}
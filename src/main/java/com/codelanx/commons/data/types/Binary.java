@@ -0,0 +1,388 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.data.types;
+
+import com.codelanx.commons.data.FileDataType;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.lang.reflect.Array;
+import java.math.BigInteger;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents a file in a compact binary format, intended for data which is
+ * only ever written and read by code. Values are stored as typed tags with
+ * variable-length integers, and every distinct string (keys included) is
+ * stored once in a leading string table. Files are read whole via
+ * {@link FileDataType#readFully(java.nio.channels.FileChannel)}, which maps
+ * files of at least 1 MiB into memory and reads smaller ones onto the heap.
+ * <br><br>
+ * Integers, longs, floats, doubles and big integers keep their type, so a
+ * tree converted from a {@link Json} or {@link Yaml} file via
+ * {@link FileDataType#convertTo(Class, File)} and back is unchanged. Other
+ * literal values are stored as their string form.
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+public class Binary extends FileDataType {
+
+    private static final int MAGIC = 0x434C4231; //"CLB1"
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte FLOAT = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte BIG_INTEGER = 7;
+    private static final byte STRING = 8;
+    private static final byte MAP = 9;
+    private static final byte LIST = 10;
+
+    public Binary(File location) {
+        super(location);
+    }
+
+    public Binary(File location, boolean lazy) {
+        super(location, lazy);
+    }
+
+    public Binary() {
+        super((File) null);
+    }
+
+    @Override
+    protected Object readRaw(File target) throws IOException {
+        try (FileChannel channel = FileChannel.open(target.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return this.newMapping();
+            }
+            return this.read(FileDataType.readFully(channel));
+        }
+    }
+
+    /**
+     * Decodes a document in this format
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param buffer The encoded document
+     * @return The decoded root value
+     * @throws IOException If the buffer does not hold a valid document
+     */
+    @Override
+    public Object read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a binary data file");
+            }
+            String[] strings = new String[Binary.readVarInt(buffer)];
+            for (int i = 0; i < strings.length; i++) {
+                int length = Binary.readVarInt(buffer);
+                if (buffer.hasArray()) {
+                    int at = buffer.arrayOffset() + buffer.position();
+                    strings[i] = new String(buffer.array(), at, length, StandardCharsets.UTF_8);
+                    ((Buffer) buffer).position(buffer.position() + length);
+                } else {
+                    byte[] bytes = new byte[length];
+                    buffer.get(bytes);
+                    strings[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+            }
+            return this.readValue(buffer, strings);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException ex) {
+            throw new IOException("Malformed binary data file", ex);
+        }
+    }
+
+    private Object readValue(ByteBuffer buffer, String[] strings) throws IOException {
+        byte tag = buffer.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case FALSE:
+                return Boolean.FALSE;
+            case TRUE:
+                return Boolean.TRUE;
+            case INT:
+                return (int) Binary.unzigzag(Binary.readVarLong(buffer));
+            case LONG:
+                return Binary.unzigzag(Binary.readVarLong(buffer));
+            case FLOAT:
+                return buffer.getFloat();
+            case DOUBLE:
+                return buffer.getDouble();
+            case BIG_INTEGER:
+                byte[] big = new byte[Binary.readVarInt(buffer)];
+                buffer.get(big);
+                return new BigInteger(big);
+            case STRING:
+                return strings[Binary.readVarInt(buffer)];
+            case MAP:
+                int size = Binary.readVarInt(buffer);
+                Map<String, Object> map = new LinkedHashMap<>(Math.max(16, (int) (size / 0.75F) + 1));
+                for (int i = 0; i < size; i++) {
+                    String key = strings[Binary.readVarInt(buffer)];
+                    map.put(key, this.readValue(buffer, strings));
+                }
+                return map;
+            case LIST:
+                int length = Binary.readVarInt(buffer);
+                List<Object> list = new ArrayList<>(length);
+                for (int i = 0; i < length; i++) {
+                    list.add(this.readValue(buffer, strings));
+                }
+                return list;
+            default:
+                throw new IOException("Unknown value tag " + tag + " at offset " + (buffer.position() - 1));
+        }
+    }
+
+    @Override
+    protected void write(Object section, OutputStream out) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        Binary.collectStrings(section, strings);
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        Binary.writeVarLong(data, strings.size());
+        for (String s : strings.keySet()) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            Binary.writeVarLong(data, bytes.length);
+            data.write(bytes);
+        }
+        Binary.writeValue(data, section, strings);
+        data.flush();
+    }
+
+    private static void collectStrings(Object value, Map<String, Integer> strings) {
+        if (value instanceof Map) {
+            ((Map<?, ?>) value).forEach((k, v) -> {
+                strings.putIfAbsent(String.valueOf(k), strings.size());
+                Binary.collectStrings(v, strings);
+            });
+        } else if (value instanceof Iterable) {
+            ((Iterable<?>) value).forEach(v -> Binary.collectStrings(v, strings));
+        } else if (value instanceof Object[]) {
+            for (Object v : (Object[]) value) {
+                Binary.collectStrings(v, strings);
+            }
+        } else if (value != null && !Binary.isTyped(value)) {
+            strings.putIfAbsent(value.toString(), strings.size());
+        }
+    }
+
+    //values written with a tag of their own, rather than as a string
+    private static boolean isTyped(Object value) {
+        return value instanceof Boolean
+                || value instanceof Integer
+                || value instanceof Short
+                || value instanceof Byte
+                || value instanceof Long
+                || value instanceof Float
+                || value instanceof Double
+                || value instanceof BigInteger
+                || value.getClass().isArray();
+    }
+
+    private static void writeValue(DataOutputStream out, Object value, Map<String, Integer> strings) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(INT);
+            Binary.writeVarLong(out, Binary.zigzag(((Number) value).intValue()));
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            Binary.writeVarLong(out, Binary.zigzag((Long) value));
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof BigInteger) {
+            byte[] bytes = ((BigInteger) value).toByteArray();
+            out.writeByte(BIG_INTEGER);
+            Binary.writeVarLong(out, bytes.length);
+            out.write(bytes);
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(MAP);
+            Binary.writeVarLong(out, map.size());
+            for (Map.Entry<?, ?> ent : map.entrySet()) {
+                Binary.writeVarLong(out, strings.get(String.valueOf(ent.getKey())));
+                Binary.writeValue(out, ent.getValue(), strings);
+            }
+        } else if (value instanceof Collection) {
+            Collection<?> list = (Collection<?>) value;
+            out.writeByte(LIST);
+            Binary.writeVarLong(out, list.size());
+            for (Object o : list) {
+                Binary.writeValue(out, o, strings);
+            }
+        } else if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            out.writeByte(LIST);
+            Binary.writeVarLong(out, length);
+            for (int i = 0; i < length; i++) {
+                Binary.writeValue(out, Array.get(value, i), strings);
+            }
+        } else {
+            out.writeByte(STRING);
+            Binary.writeVarLong(out, strings.get(value.toString()));
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) throws IOException {
+        long back = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            back |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return back;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+
+    private static int readVarInt(ByteBuffer buffer) throws IOException {
+        long back = Binary.readVarLong(buffer);
+        if (back < 0 || back > Integer.MAX_VALUE) {
+            throw new IOException("Length out of range: " + back);
+        }
+        return (int) back;
+    }
+
+    /**
+     * Not supported, as this format is not text based
+     *
+     * @param reader Unused
+     * @return Nothing
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public Object parse(Reader reader) {
+        throw new UnsupportedOperationException("Binary data cannot be parsed from text");
+    }
+
+    /**
+     * Not supported, as this format is not text based
+     *
+     * @param in Unused
+     * @return Nothing
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public Object parse(String in) {
+        throw new UnsupportedOperationException("Binary data cannot be parsed from text");
+    }
+
+    @Override
+    protected Map<String, Object> serializeMap(Map<String, Object> toFileFormat) {
+        Map<String, Object> back = this.newMapping();
+        toFileFormat.forEach((k, v) -> back.put(k, this.parseSerializable(v)));
+        return back;
+    }
+
+    @Override
+    protected Object serializeArray(Object array) {
+        int length = Array.getLength(array);
+        List<Object> back = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            back.add(this.parseSerializable(Array.get(array, i)));
+        }
+        return back;
+    }
+
+    @Override
+    protected Object deserializeArray(Object array) {
+        if (array instanceof List) {
+            Collection<Object> back = this.newSeries();
+            ((List<Object>) array).forEach(o -> back.add(this.parseDeserializable(o)));
+            return back;
+        }
+        return array;
+    }
+
+    @Override
+    protected Map<String, Object> newMapping() {
+        return new LinkedHashMap<>();
+    }
+
+    @Override
+    protected Collection<Object> newSeries() {
+        return new ArrayList<>();
+    }
+
+    /**
+     * Renders the passed section as JSON, for display purposes
+     *
+     * @param section {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    protected String toString(Object section) {
+        StringWriter out = new StringWriter();
+        try {
+            new JsonWriter(out).write(section);
+        } catch (IOException ex) {
+            throw new IllegalStateException("StringWriter threw an IOException", ex);
+        }
+        return out.toString();
+    }
+
+}
@@ -20,24 +20,27 @@
 package com.codelanx.commons.data.types;
 
 import com.codelanx.commons.data.FileDataType;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.lang.reflect.Array;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.io.FileUtils;
 import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.JSONValue;
-import org.json.simple.parser.ContainerFactory;
-import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 /**
@@ -49,19 +52,6 @@ import org.json.simple.parser.ParseException;
  */
 public class Json extends FileDataType {
 
-    private static final ThreadLocal<JSONParser> JSON_PARSER = ThreadLocal.withInitial(JSONParser::new);
-    private static final ContainerFactory ORDERED = new ContainerFactory() {
-        @Override
-        public Map createObjectContainer() {
-            return new LinkedHashMap<>();
-        }
-
-        @Override
-        public List creatArrayContainer() {
-            return new LinkedList<>();
-        }
-    };
-
     /**
      * Reads and loads a JSON file into memory
      *
@@ -75,6 +65,20 @@ public class Json extends FileDataType {
         super(location);
     }
 
+    /**
+     * Reads a JSON file into memory, optionally deserializing values only
+     * once they are retrieved
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param location The location of the file to parse
+     * @param lazy {@code true} to deserialize values on demand
+     */
+    public Json(File location, boolean lazy) {
+        super(location, lazy);
+    }
+
     public Json() {
         super((File) null);
     }
@@ -85,22 +89,60 @@ public class Json extends FileDataType {
 
     @Override
     public Object parse(Reader reader) throws IOException {
-        try {
-            return JSON_PARSER.get().parse(reader, ORDERED);
-        } catch (ParseException e) {
-            throw new IOException(e);
-        }
+        TreeBuilder tree = new TreeBuilder();
+        new JsonReader(reader).parse(tree);
+        return tree.root;
+    }
+
+    @Override
+    public Object parse(CharSequence in) throws IOException {
+        TreeBuilder tree = new TreeBuilder();
+        JsonReader.of(in).parse(tree);
+        return tree.root;
     }
 
     @Override
     public Object parse(String in) {
         try {
-            return JSON_PARSER.get().parse(in);
-        } catch (ParseException e) {
+            return this.parse((CharSequence) in);
+        } catch (IOException e) {
             throw new RuntimeException("Failed to parse input: '" + (in.length() > 32 ? in.substring(0, 32) + "..." : in), e);
         }
     }
 
+    /**
+     * Streams a JSON file to the passed {@link JsonHandler}, without loading
+     * the document into memory
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param file The JSON file to scan
+     * @param handler The {@link JsonHandler} to report the document to
+     * @throws IOException If the file could not be read or is malformed
+     */
+    public static void scan(File file, JsonHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             Reader reader = Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1)) {
+            Json.scan(reader, handler);
+        }
+    }
+
+    /**
+     * Streams JSON input to the passed {@link JsonHandler}. The reader is read
+     * in blocks, so it does not need to be buffered
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param reader The {@link Reader} to read JSON from
+     * @param handler The {@link JsonHandler} to report the document to
+     * @throws IOException If the input could not be read or is malformed
+     */
+    public static void scan(Reader reader, JsonHandler handler) throws IOException {
+        new JsonReader(reader).parse(handler);
+    }
+
     @Override
     public Map<String, Object> serializeMap(Map<String, Object> toFileFormat) {
         Map<String, Object> obj = this.newMapping();
@@ -130,19 +172,22 @@ public class Json extends FileDataType {
     @Override
     public Object deserializeArray(Object array) {
         if (array instanceof List) {
-            ((List<Object>) array).replaceAll(this::parseDeserializable);
+            //copied, as the passed list may be part of the published tree
+            Collection<Object> back = this.newSeries();
+            ((List<Object>) array).forEach(o -> back.add(this.parseDeserializable(o)));
+            return back;
         }
         return array;
     }
 
     @Override
     protected Map<String, Object> newMapping() {
-        return ORDERED.createObjectContainer();
+        return new LinkedHashMap<>();
     }
 
     @Override
     protected Collection<Object> newSeries() {
-        return ORDERED.creatArrayContainer();
+        return new ArrayList<>();
     }
 
     public static String format(String json) {
@@ -210,10 +255,19 @@ public class Json extends FileDataType {
 
     @Override
     protected String toString(Object section) {
-        if (section instanceof JSONObject) {
-            return Json.format(((JSONObject) section).toJSONString());
-        } else {
-            return Json.format(JSONValue.toJSONString(section)); //hope it doesn't break shit
+        StringWriter out = new StringWriter();
+        try {
+            new JsonWriter(out).write(section);
+        } catch (IOException ex) {
+            throw new IllegalStateException("StringWriter threw an IOException", ex);
         }
+        return out.toString();
+    }
+
+    @Override
+    protected void write(Object section, OutputStream out) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        new JsonWriter(w).write(section);
+        w.flush();
     }
 }
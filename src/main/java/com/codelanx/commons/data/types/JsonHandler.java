@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.data.types;
+
+/**
+ * Receives the events of a streamed JSON document, in document order. This
+ * allows scanning documents far larger than would be sensible to load as a
+ * whole via {@link Json#scan(java.io.File, JsonHandler)}. XML documents are
+ * reported in the same form by {@link XML#scan(java.io.File, JsonHandler)}
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+public interface JsonHandler {
+
+    /**
+     * Called upon the opening brace of an object
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     */
+    default public void startObject() {}
+
+    /**
+     * Called upon the closing brace of an object
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     */
+    default public void endObject() {}
+
+    /**
+     * Called upon the opening bracket of an array
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     */
+    default public void startArray() {}
+
+    /**
+     * Called upon the closing bracket of an array
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     */
+    default public void endArray() {}
+
+    /**
+     * Called upon the key of an object entry, before its value
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param key The key that was read
+     */
+    default public void key(String key) {}
+
+    /**
+     * Called upon a literal value, which is a {@link String}, {@link Long},
+     * {@link Double}, {@link Boolean} or {@code null}. Integers too large for
+     * a {@link Long} are read as a {@link java.math.BigInteger}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param value The value that was read
+     */
+    default public void value(Object value) {}
+
+}
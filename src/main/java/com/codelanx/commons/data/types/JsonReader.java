@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.data.types;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.nio.CharBuffer;
+
+/**
+ * A single-pass, pull based JSON parser which reports the document to a
+ * {@link JsonHandler} without building any tree of its own. Input is read in
+ * blocks into an internal buffer, so the passed {@link Reader} does not need
+ * to be buffered
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+final class JsonReader {
+
+    private final Reader in;
+    private final char[] buf;
+    private final StringBuilder scratch = new StringBuilder();
+    private int pos = 0;
+    private int limit = 0;
+    private int line = 1;
+    private int lineStart = 0; //position of the current line within the stream
+    private long consumed = 0; //characters before buf[0]
+
+    JsonReader(Reader in) {
+        this.in = in;
+        this.buf = new char[8192];
+    }
+
+    //reads the whole of buf[pos, limit) in place
+    private JsonReader(char[] buf, int pos, int limit) {
+        this.in = null;
+        this.buf = buf;
+        this.pos = pos;
+        this.limit = limit;
+        this.consumed = -pos;
+    }
+
+    /**
+     * Returns a reader over the passed text. Text backed by an accessible
+     * array (such as a decoded {@link CharBuffer}) is parsed in place, any
+     * other text is copied once
+     *
+     * @param in The text to read
+     * @return A {@link JsonReader} over {@code in}
+     */
+    static JsonReader of(CharSequence in) {
+        if (in instanceof CharBuffer && ((CharBuffer) in).hasArray()) {
+            CharBuffer cb = (CharBuffer) in;
+            int start = cb.arrayOffset() + cb.position();
+            return new JsonReader(cb.array(), start, cb.arrayOffset() + cb.limit());
+        }
+        char[] chars = in.toString().toCharArray();
+        return new JsonReader(chars, 0, chars.length);
+    }
+
+    /**
+     * Reads a single JSON value followed by the end of the input
+     *
+     * @param handler The {@link JsonHandler} to report to
+     * @return {@code false} if the input held nothing but whitespace
+     * @throws IOException If the input could not be read, or is malformed
+     */
+    boolean parse(JsonHandler handler) throws IOException {
+        if (this.skipWhitespace() < 0) {
+            return false;
+        }
+        this.value(handler);
+        if (this.skipWhitespace() >= 0) {
+            throw this.error("Unexpected trailing content");
+        }
+        return true;
+    }
+
+    private void value(JsonHandler handler) throws IOException {
+        int c = this.skipWhitespace();
+        switch (c) {
+            case '{':
+                this.pos++;
+                this.object(handler);
+                break;
+            case '[':
+                this.pos++;
+                this.array(handler);
+                break;
+            case '"':
+                this.pos++;
+                handler.value(this.string());
+                break;
+            case 't':
+                this.literal("true");
+                handler.value(Boolean.TRUE);
+                break;
+            case 'f':
+                this.literal("false");
+                handler.value(Boolean.FALSE);
+                break;
+            case 'n':
+                this.literal("null");
+                handler.value(null);
+                break;
+            case -1:
+                throw this.error("Unexpected end of input");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    handler.value(this.number());
+                } else {
+                    throw this.error("Unexpected character '" + (char) c + "'");
+                }
+        }
+    }
+
+    private void object(JsonHandler handler) throws IOException {
+        handler.startObject();
+        if (this.skipWhitespace() == '}') {
+            this.pos++;
+            handler.endObject();
+            return;
+        }
+        while (true) {
+            if (this.skipWhitespace() != '"') {
+                throw this.error("Expected an object key");
+            }
+            this.pos++;
+            handler.key(this.string());
+            this.expect(':');
+            this.value(handler);
+            int c = this.skipWhitespace();
+            this.pos++;
+            if (c == '}') {
+                handler.endObject();
+                return;
+            } else if (c != ',') {
+                this.pos--;
+                throw this.error("Expected ',' or '}'");
+            }
+        }
+    }
+
+    private void array(JsonHandler handler) throws IOException {
+        handler.startArray();
+        if (this.skipWhitespace() == ']') {
+            this.pos++;
+            handler.endArray();
+            return;
+        }
+        while (true) {
+            this.value(handler);
+            int c = this.skipWhitespace();
+            this.pos++;
+            if (c == ']') {
+                handler.endArray();
+                return;
+            } else if (c != ',') {
+                this.pos--;
+                throw this.error("Expected ',' or ']'");
+            }
+        }
+    }
+
+    private String string() throws IOException {
+        //fast path: the whole string is within the buffer and has no escapes
+        for (int i = this.pos; i < this.limit; i++) {
+            char c = this.buf[i];
+            if (c == '"') {
+                String back = new String(this.buf, this.pos, i - this.pos);
+                this.pos = i + 1;
+                return back;
+            } else if (c == '\\' || c < 0x20) {
+                break;
+            }
+        }
+        StringBuilder sb = this.scratch;
+        sb.setLength(0);
+        while (true) {
+            if (this.pos >= this.limit && !this.fill()) {
+                throw this.error("Unterminated string");
+            }
+            char c = this.buf[this.pos++];
+            if (c == '"') {
+                return sb.toString();
+            } else if (c == '\\') {
+                sb.append(this.escape());
+            } else if (c < 0x20) {
+                this.pos--;
+                throw this.error("Unescaped control character in string");
+            } else {
+                sb.append(c);
+            }
+        }
+    }
+
+    private char escape() throws IOException {
+        if (this.pos >= this.limit && !this.fill()) {
+            throw this.error("Unterminated escape sequence");
+        }
+        char c = this.buf[this.pos++];
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int back = 0;
+                for (int i = 0; i < 4; i++) {
+                    if (this.pos >= this.limit && !this.fill()) {
+                        throw this.error("Unterminated unicode escape");
+                    }
+                    int digit = Character.digit(this.buf[this.pos++], 16);
+                    if (digit < 0) {
+                        throw this.error("Malformed unicode escape");
+                    }
+                    back = (back << 4) | digit;
+                }
+                return (char) back;
+            default:
+                throw this.error("Invalid escape '\\" + c + "'");
+        }
+    }
+
+    private Object number() throws IOException {
+        StringBuilder sb = this.scratch;
+        sb.setLength(0);
+        boolean decimal = false;
+        while (this.pos < this.limit || this.fill()) {
+            char c = this.buf[this.pos];
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+') {
+                sb.append(c);
+            } else if (c == '.' || c == 'e' || c == 'E') {
+                decimal = true;
+                sb.append(c);
+            } else {
+                break;
+            }
+            this.pos++;
+        }
+        String num = sb.toString();
+        try {
+            if (decimal) {
+                return Double.parseDouble(num);
+            }
+            return num.length() < 19 ? Long.parseLong(num) : JsonReader.parseLarge(num);
+        } catch (NumberFormatException ex) {
+            throw this.error("Malformed number '" + num + "'");
+        }
+    }
+
+    private static Object parseLarge(String num) {
+        BigInteger back = new BigInteger(num);
+        return back.bitLength() < 64 ? (Object) back.longValue() : back;
+    }
+
+    private void literal(String expected) throws IOException {
+        for (int i = 0; i < expected.length(); i++) {
+            if ((this.pos >= this.limit && !this.fill()) || this.buf[this.pos] != expected.charAt(i)) {
+                throw this.error("Expected '" + expected + "'");
+            }
+            this.pos++;
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        if (this.skipWhitespace() != expected) {
+            throw this.error("Expected '" + expected + "'");
+        }
+        this.pos++;
+    }
+
+    //returns the next non-whitespace character without consuming it, or -1
+    private int skipWhitespace() throws IOException {
+        while (this.pos < this.limit || this.fill()) {
+            char c = this.buf[this.pos];
+            if (c == '\n') {
+                this.line++;
+                this.lineStart = (int) (this.consumed + this.pos + 1);
+            } else if (c != ' ' && c != '\t' && c != '\r') {
+                return c;
+            }
+            this.pos++;
+        }
+        return -1;
+    }
+
+    private boolean fill() throws IOException {
+        if (this.in == null) {
+            return false;
+        }
+        this.consumed += this.limit;
+        this.pos = 0;
+        this.limit = 0;
+        int read = this.in.read(this.buf);
+        if (read <= 0) {
+            return false;
+        }
+        this.limit = read;
+        return true;
+    }
+
+    private IOException error(String message) {
+        long column = this.consumed + this.pos - this.lineStart + 1;
+        return new IOException(message + " at line " + this.line + ", column " + column);
+    }
+
+}
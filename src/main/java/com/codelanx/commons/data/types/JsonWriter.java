@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.data.types;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Writes a tree of maps, collections, arrays and literals directly to a
+ * {@link Writer} as indented JSON, without building the document in memory
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+final class JsonWriter {
+
+    private static final String NEWLINE = System.getProperty("line.separator");
+    private static final String INDENT = "    "; //4 spaces
+    private final Writer out;
+
+    JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    void write(Object value) throws IOException {
+        this.value(value, 0);
+    }
+
+    private void value(Object value, int level) throws IOException {
+        if (value == null) {
+            this.out.write("null");
+        } else if (value instanceof String) {
+            this.string((String) value);
+        } else if (value instanceof Map) {
+            this.object((Map<?, ?>) value, level);
+        } else if (value instanceof Iterable) {
+            this.array(((Iterable<?>) value).iterator(), level);
+        } else if (value.getClass().isArray()) {
+            this.array(value, level);
+        } else if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            this.out.write(Double.isNaN(d) || Double.isInfinite(d) ? "null" : value.toString());
+        } else if (value instanceof Number || value instanceof Boolean) {
+            this.out.write(value.toString());
+        } else {
+            this.string(value.toString());
+        }
+    }
+
+    private void object(Map<?, ?> map, int level) throws IOException {
+        if (map.isEmpty()) {
+            this.out.write("{}");
+            return;
+        }
+        this.out.write('{');
+        boolean first = true;
+        for (Map.Entry<?, ?> ent : map.entrySet()) {
+            if (!first) {
+                this.out.write(',');
+            }
+            first = false;
+            this.newline(level + 1);
+            this.string(String.valueOf(ent.getKey()));
+            this.out.write(": ");
+            this.value(ent.getValue(), level + 1);
+        }
+        this.newline(level);
+        this.out.write('}');
+    }
+
+    private void array(Iterator<?> itr, int level) throws IOException {
+        if (!itr.hasNext()) {
+            this.out.write("[]");
+            return;
+        }
+        this.out.write('[');
+        while (true) {
+            this.newline(level + 1);
+            this.value(itr.next(), level + 1);
+            if (!itr.hasNext()) {
+                break;
+            }
+            this.out.write(',');
+        }
+        this.newline(level);
+        this.out.write(']');
+    }
+
+    private void array(Object array, int level) throws IOException {
+        int length = Array.getLength(array);
+        if (length == 0) {
+            this.out.write("[]");
+            return;
+        }
+        this.out.write('[');
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                this.out.write(',');
+            }
+            this.newline(level + 1);
+            this.value(Array.get(array, i), level + 1);
+        }
+        this.newline(level);
+        this.out.write(']');
+    }
+
+    private void newline(int level) throws IOException {
+        this.out.write(NEWLINE);
+        for (int i = 0; i < level; i++) {
+            this.out.write(INDENT);
+        }
+    }
+
+    private void string(String s) throws IOException {
+        this.out.write('"');
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            String esc;
+            switch (c) {
+                case '"':
+                    esc = "\\\"";
+                    break;
+                case '\\':
+                    esc = "\\\\";
+                    break;
+                case '\n':
+                    esc = "\\n";
+                    break;
+                case '\r':
+                    esc = "\\r";
+                    break;
+                case '\t':
+                    esc = "\\t";
+                    break;
+                case '\b':
+                    esc = "\\b";
+                    break;
+                case '\f':
+                    esc = "\\f";
+                    break;
+                default:
+                    if (c >= 0x20 && c != '\u2028' && c != '\u2029') {
+                        continue;
+                    }
+                    esc = String.format("\\u%04x", (int) c);
+            }
+            this.out.write(s, start, i - start);
+            this.out.write(esc);
+            start = i + 1;
+        }
+        this.out.write(s, start, s.length() - start);
+        this.out.write('"');
+    }
+
+}
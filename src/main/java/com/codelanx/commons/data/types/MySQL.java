@@ -20,7 +20,9 @@
 package com.codelanx.commons.data.types;
 
 import com.codelanx.commons.config.ConfigFile;
+import com.codelanx.commons.data.QueryCache;
 import com.codelanx.commons.data.SQLDataType;
+import com.codelanx.commons.data.SQLMetrics;
 import com.codelanx.commons.logging.Debugger;
 import com.codelanx.commons.util.cache.Cache;
 import com.codelanx.commons.util.Databases;
@@ -43,6 +45,8 @@ public class MySQL implements SQLDataType {
     private final ConnectionPrefs prefs;
     private boolean errors = true;
     private Connection con = null;
+    private QueryCache queryCache;
+    private SQLMetrics metrics;
 
     static {
         try {
@@ -222,6 +226,60 @@ public class MySQL implements SQLDataType {
         return this.errors;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public QueryCache getQueryCache() {
+        return this.queryCache;
+    }
+
+    /**
+     * Sets the {@link QueryCache} used for queries made on this {@link MySQL}
+     * instance
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param queryCache The {@link QueryCache} to use, or {@code null} to
+     *                   disable caching
+     */
+    public void setQueryCache(QueryCache queryCache) {
+        this.queryCache = queryCache;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public SQLMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Sets the {@link SQLMetrics} that statements made on this {@link MySQL}
+     * instance are recorded to
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param metrics The {@link SQLMetrics} to use, or {@code null} to stop
+     *                recording
+     */
+    public void setMetrics(SQLMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     /**
      * Subclass for managing connection preferences. Merely wraps data
      * in a single class with getters.
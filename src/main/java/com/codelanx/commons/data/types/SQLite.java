@@ -19,12 +19,15 @@
  */
 package com.codelanx.commons.data.types;
 
+import com.codelanx.commons.data.QueryCache;
 import com.codelanx.commons.data.SQLDataType;
+import com.codelanx.commons.data.SQLMetrics;
 import com.codelanx.commons.logging.Debugger;
 import java.io.File;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 /**
  * Instantiable SQLite connector
@@ -40,6 +43,8 @@ public class SQLite implements SQLDataType {
     /** The {@link Connection} object */
     protected Connection con = null;
     private boolean errors = true;
+    private QueryCache queryCache;
+    private SQLMetrics metrics;
 
     /**
      * Opens a connection to the SQLite database. Make sure to call
@@ -85,6 +90,31 @@ public class SQLite implements SQLDataType {
         return this.con;
     }
 
+    /**
+     * Opens a connection to the SQLite database, and applies the pragmas of
+     * the passed {@link Profile} to it. Make sure to call
+     * {@link SQLite#close()} after you are finished working with the database
+     * for your segment of your code.
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param database A {@link File} that represents the database location
+     * @param profile The {@link Profile} to tune the connection with
+     * @return The established {@link Connection}
+     * @throws SQLException If the connection fails to open or be tuned
+     */
+    public Connection open(File database, Profile profile) throws SQLException {
+        this.open(database);
+        try {
+            profile.apply(this.con);
+        } catch (SQLException ex) {
+            this.close();
+            throw ex;
+        }
+        return this.con;
+    }
+
     /**
      * Checks if a table exists within the set database
      *
@@ -124,6 +154,60 @@ public class SQLite implements SQLDataType {
         return this.errors;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public QueryCache getQueryCache() {
+        return this.queryCache;
+    }
+
+    /**
+     * Sets the {@link QueryCache} used for queries made on this {@link SQLite}
+     * instance
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param queryCache The {@link QueryCache} to use, or {@code null} to
+     *                   disable caching
+     */
+    public void setQueryCache(QueryCache queryCache) {
+        this.queryCache = queryCache;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public SQLMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Sets the {@link SQLMetrics} that statements made on this {@link SQLite}
+     * instance are recorded to
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param metrics The {@link SQLMetrics} to use, or {@code null} to stop
+     *                recording
+     */
+    public void setMetrics(SQLMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     /**
      * Closes the SQLite connection. Must be open first.
      *
@@ -149,4 +233,169 @@ public class SQLite implements SQLDataType {
         return this.con;
     }
 
+    /**
+     * A set of pragmas applied to an SQLite connection when it is opened. By
+     * default, this enables write-ahead logging with {@code synchronous=NORMAL}
+     * (which only syncs at checkpoints rather than on every commit), a 256 MiB
+     * memory map, a 64 MiB page cache and a 5 second busy timeout, in place of
+     * SQLite's own defaults of a rollback journal with a full sync
+     *
+     * @since 0.3.3
+     * @author 1Rogue
+     * @version 0.3.3
+     */
+    public static class Profile {
+
+        private boolean wal = true;
+        private Synchronous synchronous = Synchronous.NORMAL;
+        private long mmapSize = 256L * 1024 * 1024;
+        private long cacheSize = 64L * 1024;
+        private int busyTimeout = 5000;
+        private boolean queryOnly = false;
+
+        /**
+         * Sets whether to switch the database to write-ahead logging. This is
+         * persistent within the database file, and allows readers to work
+         * alongside a writer
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @param wal {@code true} to use write-ahead logging
+         * @return This {@link Profile}, for chaining
+         */
+        public Profile wal(boolean wal) {
+            this.wal = wal;
+            return this;
+        }
+
+        /**
+         * Sets how often SQLite will wait for data to reach the disk
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @param synchronous The {@link Synchronous} level to use
+         * @return This {@link Profile}, for chaining
+         */
+        public Profile synchronous(Synchronous synchronous) {
+            this.synchronous = synchronous;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of the database file to memory-map
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @param bytes The size in bytes, or {@code 0} to disable
+         * @return This {@link Profile}, for chaining
+         */
+        public Profile mmapSize(long bytes) {
+            this.mmapSize = bytes;
+            return this;
+        }
+
+        /**
+         * Sets the size of the page cache for each connection
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @param kibibytes The size of the cache, in KiB
+         * @return This {@link Profile}, for chaining
+         */
+        public Profile cacheSize(long kibibytes) {
+            this.cacheSize = kibibytes;
+            return this;
+        }
+
+        /**
+         * Sets how long a connection will wait on a locked database before
+         * failing with {@code SQLITE_BUSY}
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @param millis The timeout in milliseconds
+         * @return This {@link Profile}, for chaining
+         */
+        public Profile busyTimeout(int millis) {
+            this.busyTimeout = millis;
+            return this;
+        }
+
+        /**
+         * Sets whether the connection should refuse any changes to the
+         * database
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @param queryOnly {@code true} to prevent writes
+         * @return This {@link Profile}, for chaining
+         */
+        public Profile queryOnly(boolean queryOnly) {
+            this.queryOnly = queryOnly;
+            return this;
+        }
+
+        /**
+         * Returns a copy of this {@link Profile}
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @return A new {@link Profile} with the same settings
+         */
+        public Profile copy() {
+            return new Profile().wal(this.wal)
+                    .synchronous(this.synchronous)
+                    .mmapSize(this.mmapSize)
+                    .cacheSize(this.cacheSize)
+                    .busyTimeout(this.busyTimeout)
+                    .queryOnly(this.queryOnly);
+        }
+
+        /**
+         * Applies the pragmas of this {@link Profile} to a connection
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         *
+         * @param con The {@link Connection} to tune
+         * @throws SQLException If a pragma could not be applied
+         */
+        public void apply(Connection con) throws SQLException {
+            try (Statement stmt = con.createStatement()) {
+                //first, so that switching the journal can wait on other connections
+                stmt.execute("PRAGMA busy_timeout = " + this.busyTimeout);
+                if (this.wal) {
+                    stmt.execute("PRAGMA journal_mode = WAL");
+                }
+                stmt.execute("PRAGMA synchronous = " + this.synchronous.name());
+                stmt.execute("PRAGMA mmap_size = " + this.mmapSize);
+                stmt.execute("PRAGMA cache_size = " + -this.cacheSize); //negative values are in KiB
+                if (this.queryOnly) {
+                    stmt.execute("PRAGMA query_only = 1");
+                }
+            }
+        }
+
+        /**
+         * The values of SQLite's {@code synchronous} pragma
+         *
+         * @since 0.3.3
+         * @version 0.3.3
+         */
+        public static enum Synchronous {
+            OFF,
+            NORMAL,
+            FULL,
+            EXTRA;
+        }
+
+    }
+
 }
@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.data.types;
+
+import com.codelanx.commons.data.SQLDataType;
+import com.codelanx.commons.data.SQLFunction;
+import com.codelanx.commons.data.SQLResponse;
+import com.codelanx.commons.logging.Debugger;
+import com.codelanx.commons.util.Databases;
+import org.apache.commons.lang3.Validate;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Provides concurrent access to a single SQLite database. All writes are
+ * queued onto one dedicated writer thread and connection, which commits them
+ * in batches of up to {@code maxBatch} writes per transaction, so that
+ * writers never contend over the database lock. Reads are served from a pool
+ * of separate, query-only connections which (with write-ahead logging) are
+ * never blocked by the writer
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+public class SQLitePool implements AutoCloseable {
+
+    private static final Write<?> SHUTDOWN = new Write<>(null);
+    private final SQLite writer = new SQLite();
+    private final BlockingQueue<SQLite> readers;
+    private final List<SQLite> allReaders = new ArrayList<>();
+    private final BlockingQueue<Write<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread writerThread;
+    private final int maxBatch;
+    private final Object closeLock = new Object();
+    private volatile boolean closed = false; //guarded by closeLock for writes
+
+    /**
+     * Opens a writer connection and {@code readers} read connections to the
+     * passed database, tuned by the passed {@link SQLite.Profile}
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param database The database file to open
+     * @param profile The {@link SQLite.Profile} to apply to all connections
+     * @param readers The amount of read connections to open
+     * @param maxBatch The most writes to commit within a single transaction
+     * @throws SQLException If any connection could not be opened
+     */
+    public SQLitePool(File database, SQLite.Profile profile, int readers, int maxBatch) throws SQLException {
+        Validate.isTrue(readers > 0, "Must have at least one reader");
+        Validate.isTrue(maxBatch > 0, "Must allow at least one write per batch");
+        this.maxBatch = maxBatch;
+        this.readers = new ArrayBlockingQueue<>(readers);
+        this.writer.open(database, profile.copy().queryOnly(false));
+        try {
+            //the journal mode is persistent, and was switched by the writer already
+            SQLite.Profile readProfile = profile.copy().wal(false).queryOnly(true);
+            for (int i = 0; i < readers; i++) {
+                SQLite reader = new SQLite();
+                reader.open(database, readProfile);
+                this.allReaders.add(reader);
+                this.readers.add(reader);
+            }
+        } catch (SQLException ex) {
+            this.allReaders.forEach(SQLite::close);
+            this.writer.close();
+            throw ex;
+        }
+        this.writerThread = new Thread(this::drain, "SQLite-Writer-" + database.getName());
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Runs a read-only operation on one of the pooled read connections,
+     * waiting for one to become available if they are all in use
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param <R> The return type of the operation
+     * @param oper The operation to run
+     * @return The result of the operation, or any exception it threw
+     */
+    public <R> SQLResponse<R> read(SQLFunction<? super SQLDataType, R> oper) {
+        Validate.isTrue(!this.closed, "Cannot read from a closed SQLitePool");
+        SQLite reader;
+        try {
+            reader = this.readers.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return new SQLResponse<>(new SQLException("Interrupted while waiting for a read connection", ex));
+        }
+        try {
+            return new SQLResponse<>(oper.apply(reader));
+        } catch (SQLException ex) {
+            if (reader.isSendingErrorOutput()) {
+                Debugger.error(ex, "Error in SQL operation: %s", Databases.simpleErrorOutput(ex));
+            }
+            return new SQLResponse<>(ex);
+        } finally {
+            this.readers.add(reader);
+        }
+    }
+
+    /**
+     * Queues a statement which changes values
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param sql The SQL statement to execute
+     * @param params Any {@link PreparedStatement} parameters
+     * @return A future completed with the number of updated rows once the
+     *         statement has been committed
+     */
+    public CompletableFuture<Integer> update(String sql, Object... params) {
+        return this.write(con -> {
+            try (PreparedStatement stmt = con.prepareStatement(sql)) {
+                for (int i = 0; i < params.length; i++) {
+                    stmt.setObject(i + 1, params[i]);
+                }
+                return stmt.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Queues an operation to run on the writer connection. The operation runs
+     * within a transaction shared with other queued writes, and must not
+     * commit, roll back or close the connection. If it throws, only its own
+     * changes are rolled back
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param <R> The return type of the operation
+     * @param oper The operation to run
+     * @return A future completed with the result of the operation once its
+     *         changes have been committed
+     */
+    public <R> CompletableFuture<R> write(SQLFunction<? super Connection, R> oper) {
+        Validate.notNull(oper, "Cannot queue a null write");
+        Write<R> write = new Write<>(oper);
+        synchronized (this.closeLock) {
+            //queued under the lock, so that nothing is queued behind SHUTDOWN
+            if (this.closed) {
+                write.result.completeExceptionally(new IllegalStateException("Cannot write to a closed SQLitePool"));
+            } else {
+                this.queue.add(write);
+            }
+        }
+        return write.result;
+    }
+
+    /**
+     * Returns the amount of writes waiting for the writer thread
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The number of queued writes
+     */
+    public int getQueuedWrites() {
+        return this.queue.size();
+    }
+
+    /**
+     * Commits any queued writes, then closes all connections. If called from
+     * within a queued write, this returns at once, and the writer thread
+     * closes the connections once the queued writes are committed
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     */
+    @Override
+    public void close() {
+        synchronized (this.closeLock) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            this.queue.add(SHUTDOWN);
+        }
+        if (Thread.currentThread() == this.writerThread) {
+            return; //joining would wait on ourselves
+        }
+        try {
+            this.writerThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        List<Write<?>> batch = new ArrayList<>(this.maxBatch);
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(this.queue.take());
+            } catch (InterruptedException ex) {
+                continue; //only stopped via #close, so that no queued write is lost
+            }
+            this.queue.drainTo(batch, this.maxBatch - 1);
+            if (batch.remove(SHUTDOWN)) {
+                running = false;
+                this.queue.drainTo(batch);
+            }
+            try {
+                this.commit(batch);
+            } catch (Throwable ex) {
+                //the writer thread must survive anything a write throws
+                Debugger.error(ex, "Error in the SQLite writer thread");
+                SQLitePool.failAll(batch, ex);
+            }
+            batch.clear();
+        }
+        this.allReaders.forEach(SQLite::close);
+        this.writer.close();
+    }
+
+    private void commit(List<Write<?>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Connection con = this.writer.getConnection();
+        List<Write<?>> done = new ArrayList<>(batch.size());
+        try {
+            con.setAutoCommit(false);
+            for (Write<?> w : batch) {
+                Savepoint point = con.setSavepoint();
+                try {
+                    w.run(con);
+                    con.releaseSavepoint(point);
+                    done.add(w);
+                } catch (Throwable ex) {
+                    w.result.completeExceptionally(ex);
+                    con.rollback(point);
+                }
+            }
+            con.commit();
+            done.forEach(Write::complete);
+        } catch (Throwable ex) {
+            Databases.rollback(con);
+            if (this.writer.isSendingErrorOutput()) {
+                Debugger.error(ex, "Error committing batched SQLite writes");
+            }
+            //covers the committed-to-be writes, and any the failure stopped from running
+            SQLitePool.failAll(batch, ex);
+        } finally {
+            try {
+                con.setAutoCommit(true);
+            } catch (SQLException ex) {
+                Debugger.error(ex, "Error restoring auto-commit for the SQLite writer");
+            }
+        }
+    }
+
+    private static void failAll(List<Write<?>> batch, Throwable ex) {
+        batch.forEach(w -> {
+            if (!w.result.isDone()) {
+                w.result.completeExceptionally(ex);
+            }
+        });
+    }
+
+    private static final class Write<R> {
+
+        private final SQLFunction<? super Connection, R> oper;
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+        private R value;
+
+        private Write(SQLFunction<? super Connection, R> oper) {
+            this.oper = oper;
+        }
+
+        private void run(Connection con) throws SQLException {
+            this.value = this.oper.apply(con);
+        }
+
+        private void complete() {
+            this.result.complete(this.value);
+        }
+
+    }
+
+}
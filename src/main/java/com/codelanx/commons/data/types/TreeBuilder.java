@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.data.types;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the in-memory tree of a document from its events
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+final class TreeBuilder implements JsonHandler {
+
+    private final Deque<Object> open = new ArrayDeque<>();
+    private final Deque<String> keys = new ArrayDeque<>();
+    Object root;
+
+    @Override
+    public void startObject() {
+        this.open.push(new LinkedHashMap<String, Object>());
+    }
+
+    @Override
+    public void endObject() {
+        this.value(this.open.pop());
+    }
+
+    @Override
+    public void startArray() {
+        this.open.push(new ArrayList<>());
+    }
+
+    @Override
+    public void endArray() {
+        this.value(this.open.pop());
+    }
+
+    @Override
+    public void key(String key) {
+        this.keys.push(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void value(Object value) {
+        Object parent = this.open.peek();
+        if (parent == null) {
+            this.root = value;
+        } else if (parent instanceof Map) {
+            ((Map<String, Object>) parent).put(this.keys.pop(), value);
+        } else {
+            ((List<Object>) parent).add(value);
+        }
+    }
+
+}
@@ -1,21 +1,115 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
 package com.codelanx.commons.data.types;
 
 import com.codelanx.commons.data.FileDataType;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
- * Created by Rogue on 1/18/16.
+ * Represents an XML file that has been parsed and loaded into memory.
+ * Mappings are stored as nested elements named by their keys (keys which
+ * are not valid element names are written as {@code <entry key="...">}),
+ * series as {@code type="list"} elements of {@code <item>} children, and
+ * literals other than strings carry their type in a {@code type} attribute.
+ * Strings and keys holding characters which XML 1.0 cannot represent, or
+ * which a parser would normalize (carriage returns, and any line break or
+ * tab within a key), are written as base64 of their UTF-8 bytes, marked by
+ * {@code type="base64"} and {@code encoding="base64"} respectively. Files are read and written
+ * through StAX in a single streaming pass
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
  */
 public class XML extends FileDataType {
 
+    private static final XMLInputFactory INPUT = XMLInputFactory.newInstance();
+    private static final XMLOutputFactory OUTPUT = XMLOutputFactory.newInstance();
+    private static final String ROOT = "root";
+    private static final String ENTRY = "entry";
+    private static final String ITEM = "item";
+    private static final String TYPE = "type";
+    private static final String KEY = "key";
+    private static final String ENCODING = "encoding";
+    private static final String BASE64 = "base64";
+    private static final String INDENT = "    "; //4 spaces
+
+    static {
+        //never resolve entities from outside of the document
+        INPUT.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        INPUT.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        INPUT.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    /**
+     * Reads and loads an XML file into memory
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param location The location of the file to parse
+     */
     public XML(File location) {
         super(location);
-        throw new UnsupportedOperationException("XML Not complete yet"); //TODO
+    }
+
+    /**
+     * Reads an XML file into memory, optionally deserializing values only
+     * once they are retrieved
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param location The location of the file to parse
+     * @param lazy {@code true} to deserialize values on demand
+     */
+    public XML(File location, boolean lazy) {
+        super(location, lazy);
     }
 
     public XML() {
@@ -28,41 +122,387 @@ public class XML extends FileDataType {
 
     @Override
     public Object parse(Reader reader) throws IOException {
-        return null;
+        TreeBuilder tree = new TreeBuilder();
+        XML.scan(reader, tree);
+        return tree.root;
     }
 
     @Override
     public Object parse(String in) {
-        return null;
+        try {
+            return this.parse(new StringReader(in));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to parse input: '" + (in.length() > 32 ? in.substring(0, 32) + "..." : in), e);
+        }
+    }
+
+    /**
+     * Streams an XML file to the passed {@link JsonHandler}, without loading
+     * the document into memory. The document's encoding is taken from its
+     * declaration
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param file The XML file to scan
+     * @param handler The {@link JsonHandler} to report the document to
+     * @throws IOException If the file could not be read or is malformed
+     */
+    public static void scan(File file, JsonHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             InputStream in = Channels.newInputStream(channel)) {
+            XMLStreamReader reader;
+            try {
+                reader = INPUT.createXMLStreamReader(in);
+            } catch (XMLStreamException ex) {
+                throw new IOException(ex.getMessage(), ex);
+            }
+            XML.scan(reader, handler);
+        }
+    }
+
+    /**
+     * Streams XML input to the passed {@link JsonHandler}, without loading the
+     * document into memory
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param reader The {@link Reader} to read XML from
+     * @param handler The {@link JsonHandler} to report the document to
+     * @throws IOException If the input could not be read or is malformed
+     */
+    public static void scan(Reader reader, JsonHandler handler) throws IOException {
+        XMLStreamReader in;
+        try {
+            in = INPUT.createXMLStreamReader(reader);
+        } catch (XMLStreamException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+        XML.scan(in, handler);
+    }
+
+    private static void scan(XMLStreamReader in, JsonHandler handler) throws IOException {
+        try {
+            int event = in.getEventType();
+            while (event != XMLStreamConstants.START_ELEMENT) { //skips the prolog
+                if (event == XMLStreamConstants.END_DOCUMENT) {
+                    throw new IOException("Missing root element");
+                }
+                event = in.next();
+            }
+            if ("list".equals(in.getAttributeValue(null, TYPE))) {
+                handler.startArray();
+                XML.children(in, handler, false);
+                handler.endArray();
+            } else {
+                handler.startObject();
+                XML.children(in, handler, true);
+                handler.endObject();
+            }
+        } catch (XMLStreamException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        } finally {
+            try {
+                in.close();
+            } catch (XMLStreamException ignored) {
+            }
+        }
+    }
+
+    //reports each child element until the end of the current element
+    private static void children(XMLStreamReader in, JsonHandler handler, boolean keyed) throws XMLStreamException, IOException {
+        while (true) {
+            switch (in.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    XML.element(in, handler, keyed);
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    return;
+                case XMLStreamConstants.END_DOCUMENT:
+                    throw new IOException("Unexpected end of document");
+                default:
+                    break; //whitespace, comments
+            }
+        }
+    }
+
+    //reports the element the reader is positioned at, consuming it
+    private static void element(XMLStreamReader in, JsonHandler handler, boolean keyed) throws XMLStreamException, IOException {
+        if (keyed) {
+            String key = in.getLocalName();
+            if (ENTRY.equals(key)) {
+                String attr = in.getAttributeValue(null, KEY);
+                if (attr != null && BASE64.equals(in.getAttributeValue(null, ENCODING))) {
+                    attr = XML.decode(attr, in);
+                }
+                key = attr == null ? key : attr;
+            }
+            handler.key(key);
+        }
+        String type = in.getAttributeValue(null, TYPE);
+        if (type == null) {
+            String text = null;
+            while (true) {
+                switch (in.next()) {
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        text = text == null ? in.getText() : text + in.getText();
+                        break;
+                    case XMLStreamConstants.START_ELEMENT:
+                        //nested elements make this an untyped mapping
+                        handler.startObject();
+                        XML.element(in, handler, true);
+                        XML.children(in, handler, true);
+                        handler.endObject();
+                        return;
+                    case XMLStreamConstants.END_ELEMENT:
+                        handler.value(text == null ? "" : text);
+                        return;
+                    case XMLStreamConstants.END_DOCUMENT:
+                        throw new IOException("Unexpected end of document");
+                    default:
+                        break;
+                }
+            }
+        }
+        switch (type) {
+            case "map":
+                handler.startObject();
+                XML.children(in, handler, true);
+                handler.endObject();
+                return;
+            case "list":
+                handler.startArray();
+                XML.children(in, handler, false);
+                handler.endArray();
+                return;
+            default:
+                handler.value(XML.literal(type, in.getElementText(), in));
+        }
+    }
+
+    private static Object literal(String type, String text, XMLStreamReader in) throws IOException {
+        try {
+            switch (type) {
+                case "null":
+                    return null;
+                case "boolean":
+                    return Boolean.valueOf(text.trim());
+                case "int":
+                    BigInteger value = new BigInteger(text.trim());
+                    return value.bitLength() < 64 ? (Object) value.longValue() : value;
+                case "double":
+                    return Double.valueOf(text.trim());
+                case "string":
+                    return text;
+                case BASE64:
+                    return XML.decode(text, in);
+                default:
+                    throw new IOException("Unknown type '" + type + "' at line " + in.getLocation().getLineNumber());
+            }
+        } catch (NumberFormatException ex) {
+            throw new IOException("Malformed " + type + " '" + text + "' at line " + in.getLocation().getLineNumber(), ex);
+        }
+    }
+
+    private static String decode(String text, XMLStreamReader in) throws IOException {
+        try {
+            return new String(Base64.getDecoder().decode(text.trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Malformed base64 '" + text + "' at line " + in.getLocation().getLineNumber(), ex);
+        }
     }
 
     @Override
-    protected Object serializeMap(Map<String, Object> toFileFormat) {
-        return null;
+    public Map<String, Object> serializeMap(Map<String, Object> toFileFormat) {
+        Map<String, Object> obj = this.newMapping();
+        toFileFormat.forEach((k, v) -> {
+            obj.put(k, this.parseSerializable(v));
+        });
+        return obj;
     }
 
     @Override
-    protected Object serializeArray(Object array) {
-        return null;
+    public Object serializeArray(Object array) {
+        Class<?> type = array.getClass().getComponentType();
+        List<Object> back = new ArrayList<>();
+        if (type.isPrimitive()) {
+            int length = Array.getLength(array);
+            for (int i = 0; i < length; i++) {
+                back.add(Array.get(array, i));
+            }
+        } else {
+            Object[] objs = (Object[]) array;
+            Arrays.stream(objs).map(this::parseSerializable).forEach(back::add);
+        }
+        return back;
     }
 
     @Override
-    protected Object deserializeArray(Object array) {
-        return null;
+    public Object deserializeArray(Object array) {
+        if (array instanceof List) {
+            //copied, as the passed list may be part of the published tree
+            Collection<Object> back = this.newSeries();
+            ((List<Object>) array).forEach(o -> back.add(this.parseDeserializable(o)));
+            return back;
+        }
+        return array;
     }
 
     @Override
     protected Map<String, Object> newMapping() {
-        return null;
+        return new LinkedHashMap<>();
     }
 
     @Override
     protected Collection<Object> newSeries() {
-        return null;
+        return new ArrayList<>();
     }
 
     @Override
     protected String toString(Object section) {
-        return null;
+        StringWriter out = new StringWriter();
+        try {
+            XML.write(OUTPUT.createXMLStreamWriter(out), section);
+        } catch (XMLStreamException ex) {
+            throw new IllegalStateException("Unable to write XML", ex);
+        }
+        return out.toString();
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void write(Object section, OutputStream out) throws IOException {
+        try {
+            XML.write(OUTPUT.createXMLStreamWriter(new BufferedOutputStream(out), "UTF-8"), section);
+        } catch (XMLStreamException ex) {
+            throw new IOException("Unable to write XML", ex);
+        }
+    }
+
+    private static void write(XMLStreamWriter out, Object section) throws XMLStreamException {
+        out.writeStartDocument("UTF-8", "1.0");
+        out.writeCharacters("\n");
+        out.writeStartElement(ROOT);
+        if (section instanceof Collection) {
+            out.writeAttribute(TYPE, "list");
+            XML.writeItems(out, (Collection<?>) section, 1);
+        } else {
+            XML.writeEntries(out, (Map<?, ?>) section, 1);
+        }
+        out.writeEndElement();
+        out.writeCharacters("\n");
+        out.writeEndDocument();
+        out.flush();
+        out.close();
+    }
+
+    private static void writeEntries(XMLStreamWriter out, Map<?, ?> map, int depth) throws XMLStreamException {
+        for (Map.Entry<?, ?> ent : map.entrySet()) {
+            XML.indent(out, depth);
+            String key = String.valueOf(ent.getKey());
+            if (XML.isName(key)) {
+                out.writeStartElement(key);
+            } else if (XML.isVerbatim(key, true)) {
+                out.writeStartElement(ENTRY);
+                out.writeAttribute(KEY, key);
+            } else {
+                out.writeStartElement(ENTRY);
+                out.writeAttribute(KEY, XML.encode(key));
+                out.writeAttribute(ENCODING, BASE64);
+            }
+            XML.writeValue(out, ent.getValue(), depth);
+        }
+        if (!map.isEmpty()) {
+            XML.indent(out, depth - 1);
+        }
+    }
+
+    private static void writeItems(XMLStreamWriter out, Collection<?> items, int depth) throws XMLStreamException {
+        for (Object o : items) {
+            XML.indent(out, depth);
+            out.writeStartElement(ITEM);
+            XML.writeValue(out, o, depth);
+        }
+        if (!items.isEmpty()) {
+            XML.indent(out, depth - 1);
+        }
+    }
+
+    //writes the attributes and content of an opened element, and closes it
+    private static void writeValue(XMLStreamWriter out, Object value, int depth) throws XMLStreamException {
+        if (value instanceof Map) {
+            out.writeAttribute(TYPE, "map");
+            XML.writeEntries(out, (Map<?, ?>) value, depth + 1);
+        } else if (value instanceof Collection) {
+            out.writeAttribute(TYPE, "list");
+            XML.writeItems(out, (Collection<?>) value, depth + 1);
+        } else if (value instanceof Object[]) {
+            out.writeAttribute(TYPE, "list");
+            XML.writeItems(out, Arrays.asList((Object[]) value), depth + 1);
+        } else if (value == null) {
+            out.writeAttribute(TYPE, "null");
+        } else if (value instanceof Boolean) {
+            out.writeAttribute(TYPE, "boolean");
+            out.writeCharacters(value.toString());
+        } else if (value instanceof Double || value instanceof Float || value instanceof BigDecimal) {
+            out.writeAttribute(TYPE, "double");
+            out.writeCharacters(value.toString());
+        } else if (value instanceof Number) {
+            out.writeAttribute(TYPE, "int");
+            out.writeCharacters(value.toString());
+        } else {
+            String text = value.toString();
+            if (XML.isVerbatim(text, false)) {
+                out.writeCharacters(text);
+            } else {
+                out.writeAttribute(TYPE, BASE64);
+                out.writeCharacters(XML.encode(text));
+            }
+        }
+        out.writeEndElement();
+    }
+
+    private static void indent(XMLStreamWriter out, int depth) throws XMLStreamException {
+        out.writeCharacters("\n");
+        for (int i = 0; i < depth; i++) {
+            out.writeCharacters(INDENT);
+        }
+    }
+
+    //whether the text is read back unchanged, see the Char production and the
+    //end-of-line and attribute-value normalization of the XML 1.0 specification
+    private static boolean isVerbatim(String text, boolean attribute) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x20 ? attribute || (c != '\t' && c != '\n') : c == '\uFFFE' || c == '\uFFFF') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String encode(String text) {
+        return Base64.getEncoder().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //whether a key can be written as an element name of its own
+    private static boolean isName(String key) {
+        if (key.isEmpty() || key.regionMatches(true, 0, "xml", 0, 3)) {
+            return false;
+        }
+        char first = key.charAt(0);
+        if (!(Character.isLetter(first) || first == '_')) {
+            return false;
+        }
+        for (int i = 1; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (!(Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -1,18 +1,24 @@
 package com.codelanx.commons.data.types;
 
 import com.codelanx.commons.data.FileDataType;
-import com.codelanx.commons.util.Reflections;
-import org.json.simple.JSONObject;
+import com.codelanx.commons.data.FileSerializable;
 import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.constructor.Constructor;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.representer.Representer;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
-import java.nio.file.Files;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,11 +30,13 @@ public class Yaml extends FileDataType {
 
     private static final DumperOptions OUTPUT = new DumperOptions() {{
         this.setDefaultFlowStyle(FlowStyle.BLOCK);
+        this.setWidth(Integer.MAX_VALUE); //never fold long scalars
+        this.setSplitLines(false);
     }};
     private static final ThreadLocal<org.yaml.snakeyaml.Yaml> CRYPTEX = new ThreadLocal<org.yaml.snakeyaml.Yaml>() {
         @Override
         protected org.yaml.snakeyaml.Yaml initialValue() {
-            return new org.yaml.snakeyaml.Yaml(OUTPUT);
+            return new org.yaml.snakeyaml.Yaml(new Constructor(), new TreeRepresenter(), OUTPUT);
         }
     };
 
@@ -36,6 +44,10 @@ public class Yaml extends FileDataType {
         super(source);
     }
 
+    public Yaml(File source, boolean lazy) {
+        super(source, lazy);
+    }
+
     public Yaml() {
         super((File) null);
     }
@@ -56,7 +68,7 @@ public class Yaml extends FileDataType {
 
     @Override
     public Object serializeMap(Map<String, Object> toFileFormat) {
-        JSONObject obj = new JSONObject();
+        Map<String, Object> obj = this.newMapping();
         toFileFormat.forEach((k, v) -> {
             obj.put(k, this.parseSerializable(v));
         });
@@ -75,7 +87,12 @@ public class Yaml extends FileDataType {
 
     @Override
     public Object deserializeArray(Object array) {
-        if (array.getClass().getComponentType().isPrimitive()) {
+        if (array instanceof List) {
+            //copied, as the passed list may be part of the published tree
+            Collection<Object> back = this.newSeries();
+            ((List<Object>) array).forEach(o -> back.add(this.parseDeserializable(o)));
+            return back;
+        } else if (array.getClass().getComponentType().isPrimitive()) {
             return array;
         } else {
             Object[] back = (Object[]) array;
@@ -95,37 +112,45 @@ public class Yaml extends FileDataType {
 
     @Override
     protected String toString(Object section) {
-        return CRYPTEX.get().dump(this.replaceUnserializables(section));
+        StringWriter out = new StringWriter();
+        CRYPTEX.get().dump(Yaml.checkRoot(section), out);
+        return out.toString();
     }
 
-    private Object replaceUnserializables(Object in) {
-        if (in instanceof Map) {
-            Map<String, Object> base = (Map<String, Object>) in;
-            Map<String, Object> back = new HashMap<>();
-            back.putAll(base);
-            back.replaceAll((k, v) -> {
-                return this.unserializeMapping(v);
-            });
-            return back;
-        } else if (in instanceof Collection) {
-            Collection<Object> base = (Collection<Object>) in;
-            List<Object> back = new ArrayList<>();
-            back.addAll(base);
-            back.replaceAll(this::unserializeMapping);
-            return back;
-        } else {
+    @Override
+    protected void write(Object section, OutputStream out) throws IOException {
+        //dumped straight from the snapshot, the representer handles any value
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        CRYPTEX.get().dump(Yaml.checkRoot(section), w);
+        w.flush();
+    }
+
+    private static Object checkRoot(Object section) {
+        if (!(section instanceof Map || section instanceof Collection)) {
             throw new IllegalArgumentException("Cannot have a literal as the root value");
         }
+        return section;
     }
 
-    private Object unserializeMapping(Object v) {
-        if (v instanceof Map
-                || v.getClass().isArray()
-                || v instanceof List
-                || v == null) {
-            return v;
-        } else {
-            return Reflections.objectString(v);
+    /**
+     * Represents the values of a data tree as plain YAML, without copying it.
+     * Mappings keep their iteration order and are written without tags,
+     * {@link FileSerializable} objects are written as their serialized form,
+     * and any other unknown objects are written as a string
+     *
+     * @since 0.3.3
+     * @author 1Rogue
+     * @version 0.3.3
+     */
+    private static final class TreeRepresenter extends Representer {
+
+        public TreeRepresenter() {
+            this.multiRepresenters.put(FileSerializable.class, data -> this.representMapping(Tag.MAP, ((FileSerializable) data).getData(), null));
+            this.multiRepresenters.put(Enum.class, data -> this.representScalar(Tag.STR, ((Enum<?>) data).name()));
+            this.multiRepresenters.put(Character.class, data -> this.representScalar(Tag.STR, data.toString()));
+            this.representers.put(null, data -> this.representScalar(Tag.STR, String.valueOf(data))); //in place of the JavaBean representer
         }
+
     }
+
 }
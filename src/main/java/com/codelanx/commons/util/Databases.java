@@ -47,6 +47,62 @@ public class Databases {
         return String.format("(%d) %s", ex.getErrorCode(), ex.getMessage());
     }
 
+    /**
+     * Determines whether an {@link SQLException} (or any exception chained
+     * onto it) represents a transient failure, after which the same
+     * transaction can simply be tried again. This covers deadlocks and lock
+     * wait timeouts on MySQL (error codes 1213 and 1205), serialization
+     * failures (SQLState class {@code 40}) and busy or locked SQLite databases
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param ex The relevant {@link SQLException}
+     * @return {@code true} if retrying the transaction may succeed
+     */
+    public static boolean isRetryable(SQLException ex) {
+        for (SQLException curr = ex; curr != null; curr = curr.getNextException()) {
+            switch (curr.getErrorCode()) {
+                case 1205: //ER_LOCK_WAIT_TIMEOUT
+                case 1213: //ER_LOCK_DEADLOCK
+                    return true;
+                case 5: //SQLITE_BUSY
+                case 6: //SQLITE_LOCKED
+                    if (curr.getMessage() != null && curr.getMessage().contains("SQLITE_")) {
+                        return true;
+                    }
+                    break;
+            }
+            String state = curr.getSQLState();
+            if (state != null && state.startsWith("40")) {
+                return true;
+            }
+            if (curr.getCause() instanceof SQLException && curr.getCause() != curr.getNextException()
+                    && Databases.isRetryable((SQLException) curr.getCause())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rolls back any pending changes on a {@link Connection} and swallows any
+     * {@link SQLException} that occurs. Can handle null parameters
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param con The {@link Connection} to roll back
+     */
+    public static void rollback(Connection con) {
+        if (con == null) {
+            return;
+        }
+        try {
+            con.rollback();
+        } catch (SQLException ex) {}
+    }
+
     /**
      * Closes a passed {@link Statement} object and swallows any
      * {@link SQLException} that occurs. Can handle null parameters
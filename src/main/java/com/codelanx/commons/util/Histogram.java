@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2016 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.commons.util;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative {@code long} values, such as
+ * latencies in nanoseconds. Values are grouped into log-linear buckets in the
+ * style of an HDR histogram: each power of two is split into 32 linear
+ * sub-buckets, so any value reported by the histogram is within roughly 3%
+ * of the values actually recorded, with a constant memory footprint
+ *
+ * @since 0.3.3
+ * @author 1Rogue
+ * @version 0.3.3
+ */
+public class Histogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 44; //~4.8 hours in nanoseconds
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a single value. Negative values are recorded as {@code 0}, and
+     * values above the trackable range are recorded as the maximum
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param value The value to record
+     */
+    public void record(long value) {
+        long val = Math.max(0, Math.min(MAX_VALUE, value));
+        this.counts.incrementAndGet(Histogram.indexOf(val));
+        this.count.increment();
+        this.sum.add(val);
+        long curr;
+        while (val > (curr = this.max.get()) && !this.max.compareAndSet(curr, val));
+    }
+
+    /**
+     * Returns the amount of values recorded
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The total count
+     */
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    /**
+     * Returns the largest value recorded
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The maximum value, or {@code 0} if nothing was recorded
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Returns the arithmetic mean of all recorded values
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @return The mean value, or {@code 0} if nothing was recorded
+     */
+    public double getMean() {
+        long c = this.count.sum();
+        return c == 0 ? 0 : (double) this.sum.sum() / c;
+    }
+
+    /**
+     * Returns the value below which the passed percentage of recorded values
+     * fall, e.g. {@code 99} for the 99th percentile
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param percentile A percentile between {@code 0} and {@code 100}
+     * @return The approximate value at that percentile, or {@code 0} if
+     *         nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        Validate.isTrue(percentile >= 0 && percentile <= 100, "Percentile must be between 0 and 100");
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = this.counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return Math.min(this.max.get(), Histogram.highestEquivalent(i));
+            }
+        }
+        return this.max.get();
+    }
+
+    /**
+     * Returns a short, human-readable summary of this histogram, treating the
+     * recorded values as nanoseconds and printing them in the given unit
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     *
+     * @param unit The {@link TimeUnit} to print the values in
+     * @return A summary of the count, mean and common percentiles
+     */
+    public String summarize(TimeUnit unit) {
+        double factor = unit.toNanos(1);
+        return String.format("n=%d mean=%.3f p50=%.3f p90=%.3f p99=%.3f max=%.3f (%s)",
+                this.getCount(),
+                this.getMean() / factor,
+                this.getValueAtPercentile(50) / factor,
+                this.getValueAtPercentile(90) / factor,
+                this.getValueAtPercentile(99) / factor,
+                this.getMax() / factor,
+                unit.name().toLowerCase());
+    }
+
+    /**
+     * Clears all recorded values. Values recorded concurrently with a reset
+     * may be partially retained
+     *
+     * @since 0.3.3
+     * @version 0.3.3
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.counts.set(i, 0);
+        }
+        this.count.reset();
+        this.sum.reset();
+        this.max.set(0);
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long highestEquivalent(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        long lowest = (long) (SUB_BUCKETS + (index - SUB_BUCKETS) % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+}